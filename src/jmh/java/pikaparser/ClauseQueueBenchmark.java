@@ -0,0 +1,116 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pikaparser.clause.Clause;
+import pikaparser.clause.terminal.Terminal;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.memotable.ClauseQueue;
+
+/**
+ * Benchmark for scheduling clauses at a single start position, by seeding every terminal of the Java grammar, then
+ * following every seed parent clause of each clause removed from the queue (once per clause), using a
+ * {@link PriorityQueue} or a {@link ClauseQueue}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ClauseQueueBenchmark {
+    private List<Clause> terminals;
+
+    private boolean[] scheduled;
+
+    private PriorityQueue<Clause> priorityQueue;
+
+    private ClauseQueue clauseQueue;
+
+    @Setup
+    public void setup() throws IOException, URISyntaxException {
+        Grammar grammar = MetaGrammar.parse(TestUtils.loadResourceFile("Java.1.8.peg"));
+        terminals = grammar.allClauses.stream().filter(clause -> clause instanceof Terminal)
+                .collect(Collectors.toList());
+        scheduled = new boolean[grammar.allClauses.size()];
+        priorityQueue = new PriorityQueue<Clause>((c1, c2) -> c1.getClauseIdx() - c2.getClauseIdx());
+        clauseQueue = new ClauseQueue(grammar.allClauses);
+    }
+
+    @Benchmark
+    public void priorityQueue() {
+        Arrays.fill(scheduled, false);
+        priorityQueue.addAll(terminals);
+        while (!priorityQueue.isEmpty()) {
+            var clause = priorityQueue.remove();
+            for (var seedParentClause : clause.getSeedParentClauses()) {
+                if (!scheduled[seedParentClause.getClauseIdx()]) {
+                    scheduled[seedParentClause.getClauseIdx()] = true;
+                    priorityQueue.add(seedParentClause);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void clauseQueue() {
+        Arrays.fill(scheduled, false);
+        clauseQueue.addAll(terminals);
+        while (!clauseQueue.isEmpty()) {
+            var clause = clauseQueue.remove();
+            for (var seedParentClause : clause.getSeedParentClauses()) {
+                if (!scheduled[seedParentClause.getClauseIdx()]) {
+                    scheduled[seedParentClause.getClauseIdx()] = true;
+                    clauseQueue.add(seedParentClause);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+
+/**
+ * Benchmark for the time taken to load the Java grammar in a fresh JVM, either from the grammar description or
+ * from a snapshot file. Each fork loads the grammar once, without warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class GrammarStartupBenchmark {
+    private String grammarSpec;
+
+    private byte[] grammarSnapshot;
+
+    /** The snapshot file, which is written by the first fork that needs it, and then reused by later forks. */
+    private static final Path SNAPSHOT_PATH = Paths.get("target", "Java.1.8.peg.snapshot");
+
+    @Setup
+    public void setup() throws IOException, URISyntaxException {
+        grammarSpec = TestUtils.loadResourceFile("Java.1.8.peg");
+        if (!Files.exists(SNAPSHOT_PATH)) {
+            try (var outputStream = Files.newOutputStream(SNAPSHOT_PATH)) {
+                MetaGrammar.parse(grammarSpec).writeSnapshot(outputStream);
+            }
+        }
+        grammarSnapshot = Files.readAllBytes(SNAPSHOT_PATH);
+    }
+
+    @Benchmark
+    public Grammar loadJavaGrammar() {
+        return MetaGrammar.parse(grammarSpec);
+    }
+
+    @Benchmark
+    public Grammar readJavaGrammarSnapshot() throws IOException {
+        return Grammar.readSnapshot(new ByteArrayInputStream(grammarSnapshot));
+    }
+}
@@ -0,0 +1,94 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseOptions;
+import pikaparser.memotable.MemoTable;
+
+/**
+ * Benchmark for editing Java source parsed with the Java grammar with
+ * {@link ParseOptions#incrementalReparsing}, by replacing one character of an identifier.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IncrementalReparseBenchmark {
+    private Grammar grammar;
+
+    private MemoTable memoTable;
+
+    private int editPos;
+
+    private int numEdits;
+
+    @Setup
+    public void setup() throws IOException, URISyntaxException {
+        grammar = MetaGrammar.parse(TestUtils.loadResourceFile("Java.1.8.peg"));
+        var input = TestUtils.loadResourceFile("GrammarUtils.java");
+        var parseOptions = new ParseOptions();
+        parseOptions.incrementalReparsing = true;
+        memoTable = grammar.parse(input, parseOptions);
+        editPos = input.indexOf("clauseIdx");
+    }
+
+    /** Reparse before each edit, so that each edit starts from a fully parsed memo table. */
+    @Setup(Level.Invocation)
+    public void reparse() {
+        grammar.reparse(memoTable);
+    }
+
+    /** Replace one character, alternating between two replacements. */
+    @Benchmark
+    public MemoTable applyEdit() {
+        memoTable.applyEdit(editPos, 1, numEdits++ % 2 == 0 ? "C" : "c");
+        return memoTable;
+    }
+}
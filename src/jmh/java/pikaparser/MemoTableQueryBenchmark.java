@@ -0,0 +1,102 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pikaparser.ast.ASTNode;
+import pikaparser.clause.Clause;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.memotable.Match;
+import pikaparser.memotable.MemoTable;
+
+/** Benchmark for querying the memo table produced by parsing Java source with the Java grammar. */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MemoTableQueryBenchmark {
+    private static final String TOP_RULE_NAME = "Compilation";
+
+    private static final String[] RECOVERY_RULE_NAMES = { TOP_RULE_NAME, "CompilationUnit" };
+
+    private MemoTable memoTable;
+
+    private Clause topLevelClause;
+
+    private Match topLevelMatch;
+
+    @Setup
+    public void setup() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(TestUtils.loadResourceFile("Java.1.8.peg"));
+        memoTable = grammar.parse(TestUtils.loadResourceFile("GrammarUtils.java"));
+        topLevelClause = grammar.getRule(TOP_RULE_NAME).labeledClause.clause;
+        topLevelMatch = memoTable.getNonOverlappingMatches(topLevelClause).get(0);
+    }
+
+    @Benchmark
+    public ASTNode buildAST() {
+        return new ASTNode(TOP_RULE_NAME, topLevelMatch, memoTable.input);
+    }
+
+    @Benchmark
+    public NavigableMap<Integer, Entry<Integer, String>> getSyntaxErrors() {
+        return memoTable.getSyntaxErrors(RECOVERY_RULE_NAMES);
+    }
+
+    @Benchmark
+    public List<Match> getNonOverlappingMatches() {
+        return memoTable.getNonOverlappingMatches(topLevelClause);
+    }
+
+    @Benchmark
+    public Map<Clause, NavigableMap<Integer, Match>> getAllNavigableMatches() {
+        return memoTable.getAllNavigableMatches();
+    }
+}
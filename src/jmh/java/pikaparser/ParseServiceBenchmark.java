@@ -0,0 +1,110 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseOptions;
+import pikaparser.grammar.ParseService;
+
+/**
+ * Benchmark for parsing many small Java documents in parallel with {@link ParseService}, with several thread pool
+ * sizes. Throughput is reported per document, and should scale with the number of threads, up to the number of
+ * available cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParseServiceBenchmark {
+    /** The number of documents parsed per benchmark invocation. */
+    private static final int NUM_DOCUMENTS = 256;
+
+    /** The number of threads in the pool. */
+    @Param({ "1", "2", "4", "8" })
+    public int numThreads;
+
+    private ExecutorService executor;
+
+    private ParseService parseService;
+
+    private List<String> documents;
+
+    @Setup
+    public void setup() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(TestUtils.loadResourceFile("Java.1.8.peg"));
+        executor = Executors.newFixedThreadPool(numThreads);
+        parseService = new ParseService(grammar, new ParseOptions(), executor, 2 * numThreads);
+        documents = IntStream.range(0, NUM_DOCUMENTS)
+                .mapToObj(i -> "class C" + i + " {\n" //
+                        + "    int f" + i + "(int x) {\n" //
+                        + "        return x * " + i + " + (x >> 1); // comment\n" //
+                        + "    }\n" //
+                        + "}\n")
+                .collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_DOCUMENTS)
+    public long parseDocuments() {
+        return parseService.parseAll(documents.stream(),
+                memoTable -> memoTable.getSyntaxErrors("Compilation", "CompilationUnit").size())
+                .mapToLong(Integer::longValue).sum();
+    }
+}
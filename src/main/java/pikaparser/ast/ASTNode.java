@@ -42,10 +42,10 @@ public class ASTNode {
     public final Clause nodeType;
     public final int startPos;
     public final int len;
-    public final String input;
+    public final CharSequence input;
     public final List<ASTNode> children = new ArrayList<>();
 
-    private ASTNode(String label, Clause nodeType, int startPos, int len, String input) {
+    private ASTNode(String label, Clause nodeType, int startPos, int len, CharSequence input) {
         this.label = label;
         this.nodeType = nodeType;
         this.startPos = startPos;
@@ -54,13 +54,14 @@ public class ASTNode {
     }
 
     /** Recursively create an AST from a parse tree. */
-    public ASTNode(String label, Match match, String input) {
+    public ASTNode(String label, Match match, CharSequence input) {
         this(label, match.memoKey.clause, match.memoKey.startPos, match.len, input);
         addNodesWithASTNodeLabelsRecursive(this, match, input);
     }
 
     /** Recursively convert a match node to an AST node. */
-    private static void addNodesWithASTNodeLabelsRecursive(ASTNode parentASTNode, Match parentMatch, String input) {
+    private static void addNodesWithASTNodeLabelsRecursive(ASTNode parentASTNode, Match parentMatch,
+            CharSequence input) {
         // Recurse to descendants
         var subClauseMatchesToUse = parentMatch.getSubClauseMatches();
         for (int subClauseMatchIdx = 0; subClauseMatchIdx < subClauseMatchesToUse.size(); subClauseMatchIdx++) {
@@ -138,7 +139,7 @@ public class ASTNode {
     }
 
     public String getText() {
-        return input.substring(startPos, startPos + len);
+        return input.subSequence(startPos, startPos + len).toString();
     }
 
     @Override
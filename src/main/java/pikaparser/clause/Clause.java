@@ -30,7 +30,7 @@
 package pikaparser.clause;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -38,6 +38,7 @@ import pikaparser.ast.LabeledClause;
 import pikaparser.clause.aux.ASTNodeLabel;
 import pikaparser.clause.nonterminal.Seq;
 import pikaparser.clause.terminal.Nothing;
+import pikaparser.grammar.Grammar;
 import pikaparser.grammar.MetaGrammar;
 import pikaparser.grammar.Rule;
 import pikaparser.memotable.Match;
@@ -47,26 +48,32 @@ import pikaparser.memotable.MemoTable;
 /** Abstract superclass of all PEG operators and terminals. */
 public abstract class Clause {
     /** Subclauses, paired with their AST node label (if there is one). */
-    public LabeledClause[] labeledSubClauses;
+    public final LabeledClause[] labeledSubClauses;
 
-    /** Rules this clause is a toplevel clause of (used by {@link #toStringWithRuleNames(}) method). */
-    public List<Rule> rules;
+    /**
+     * Rules this clause is a toplevel clause of (used by {@link #toStringWithRuleNames(}) method). Unmodifiable
+     * after {@link #freeze()} is called.
+     */
+    private List<Rule> rules;
 
     /** The parent clauses of this clause that should be matched in the same start position. */
-    public List<Clause> seedParentClauses = new ArrayList<>();
+    private List<Clause> seedParentClauses = List.of();
 
     /** If true, the clause can match while consuming zero characters. */
-    public boolean canMatchZeroChars;
+    private boolean canMatchZeroChars;
 
     /** Index in the topological sort order of clauses, bottom-up. */
-    public int clauseIdx;
+    private int clauseIdx;
 
     /** The cached result of the {@link #toString()} method. */
-    public String toStringCached;
+    private String toStringCached;
 
     /** The cached result of the {@link #toStringWithRuleNames()} method. */
     private String toStringWithRuleNameCached;
 
+    /** If true, {@link #freeze()} has been called, and the clause can no longer be modified. */
+    private boolean frozen;
+
     // -------------------------------------------------------------------------------------------------------------
 
     /** Clause constructor. */
@@ -93,6 +100,7 @@ public abstract class Clause {
 
     /** Register this clause with a rule (used by {@link #toStringWithRuleNames()}). */
     public void registerRule(Rule rule) {
+        checkNotFrozen();
         if (rules == null) {
             rules = new ArrayList<>();
         }
@@ -101,22 +109,92 @@ public abstract class Clause {
 
     /** Unregister this clause from a rule. */
     public void unregisterRule(Rule rule) {
+        checkNotFrozen();
         if (rules != null) {
             rules.remove(rule);
+            if (rules.isEmpty()) {
+                rules = null;
+            }
+        }
+    }
+
+    /**
+     * Called once the {@link Grammar} that contains this clause has been constructed, after which the clause must
+     * not be modified, so that the grammar can be used from multiple threads. Caches the values that would
+     * otherwise be computed lazily.
+     */
+    public void freeze() {
+        rules = rules == null ? null : List.copyOf(rules);
+        toString();
+        toStringWithRuleNames();
+        frozen = true;
+    }
+
+    /** Throw an {@link IllegalStateException} if {@link #freeze()} has been called. */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Clause can't be modified after its grammar has been constructed: "
+                    + this);
         }
     }
 
     // -------------------------------------------------------------------------------------------------------------
 
+    /** Get the rules this clause is a toplevel clause of (empty if none). */
+    public List<Rule> getRules() {
+        return rules == null ? List.of() : frozen ? rules : Collections.unmodifiableList(rules);
+    }
+
+    /** Get the parent clauses of this clause that should be matched in the same start position. */
+    public List<Clause> getSeedParentClauses() {
+        return seedParentClauses;
+    }
+
+    /** Whether the clause can match while consuming zero characters. */
+    public boolean canMatchZeroChars() {
+        return canMatchZeroChars;
+    }
+
+    /**
+     * Set whether the clause can match while consuming zero characters (see
+     * {@link #determineWhetherCanMatchZeroChars()}).
+     */
+    public void setCanMatchZeroChars(boolean canMatchZeroChars) {
+        checkNotFrozen();
+        this.canMatchZeroChars = canMatchZeroChars;
+    }
+
+    /** Get the index of the clause in the topological sort order of clauses, bottom-up. */
+    public int getClauseIdx() {
+        return clauseIdx;
+    }
+
+    /** Set the index of the clause in the topological sort order of clauses, bottom-up. */
+    public void setClauseIdx(int clauseIdx) {
+        checkNotFrozen();
+        this.clauseIdx = clauseIdx;
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Add a seed parent clause to this clause, if it has not already been added. */
+    public void addSeedParentClause(Clause seedParentClause) {
+        checkNotFrozen();
+        for (var existingSeedParentClause : seedParentClauses) {
+            if (existingSeedParentClause == seedParentClause) {
+                return;
+            }
+        }
+        var newSeedParentClauses = new ArrayList<>(seedParentClauses);
+        newSeedParentClauses.add(seedParentClause);
+        seedParentClauses = List.copyOf(newSeedParentClauses);
+    }
+
     /** Find which subclauses need to add this clause as a "seed parent clause". Overridden in {@link Seq}. */
     public void addAsSeedParentClause() {
         // Default implementation: all subclauses will seed this parent clause.
-        var added = new HashSet<>();
         for (var labeledSubClause : labeledSubClauses) {
-            // Don't duplicate seed parent clauses in the subclause
-            if (added.add(labeledSubClause.clause)) {
-                labeledSubClause.clause.seedParentClauses.add(this);
-            }
+            labeledSubClause.clause.addSeedParentClause(this);
         }
     }
 
@@ -130,9 +208,15 @@ public abstract class Clause {
 
     /**
      * Match a clause by looking up its subclauses in the memotable (in the case of nonterminals), or by looking at
-     * the input string (in the case of terminals). Implemented in subclasses.
+     * the input string (in the case of terminals). Implemented in subclasses. A {@link MemoKey} is only allocated
+     * if the clause matches.
      */
-    public abstract Match match(MemoTable memoTable, MemoKey memoKey, String input);
+    public abstract Match match(MemoTable memoTable, int startPos, CharSequence input);
+
+    /** Match a clause at the start position of the given {@link MemoKey}. */
+    public Match match(MemoTable memoTable, MemoKey memoKey, CharSequence input) {
+        return match(memoTable, memoKey.startPos, input);
+    }
 
     // -------------------------------------------------------------------------------------------------------------
 
@@ -143,9 +227,30 @@ public abstract class Clause {
                         rules.stream().map(rule -> rule.ruleName).sorted().collect(Collectors.toList()));
     }
 
+    /** Get the clause as a string, without using the cached value. Implemented in subclasses. */
+    protected abstract String toStringUncached();
+
     @Override
     public String toString() {
-        throw new IllegalArgumentException("toString() needs to be overridden in subclasses");
+        if (toStringCached == null) {
+            toStringCached = toStringUncached();
+        }
+        return toStringCached;
+    }
+
+    /**
+     * Clear the cached result of {@link #toString()}, after the subclauses of this clause or of one of its
+     * descendants have been changed.
+     */
+    public void clearToStringCache() {
+        checkNotFrozen();
+        toStringCached = null;
+    }
+
+    /** Set the cached result of {@link #toString()}, e.g. when reading a grammar snapshot. */
+    public void setToStringCached(String toStringCached) {
+        checkNotFrozen();
+        this.toStringCached = toStringCached;
     }
 
     /** Get the clause as a string, with rule names prepended if the clause is the toplevel clause of a rule. */
@@ -32,7 +32,6 @@ package pikaparser.clause.aux;
 import pikaparser.ast.LabeledClause;
 import pikaparser.clause.Clause;
 import pikaparser.memotable.Match;
-import pikaparser.memotable.MemoKey;
 import pikaparser.memotable.MemoTable;
 
 /**
@@ -53,15 +52,12 @@ public class ASTNodeLabel extends Clause {
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
         throw new IllegalArgumentException(getClass().getSimpleName() + " node should not be in final grammar");
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            toStringCached = astNodeLabel + ":(" + labeledSubClauses[0] + ")";
-        }
-        return toStringCached;
+    protected String toStringUncached() {
+        return astNodeLabel + ":(" + labeledSubClauses[0] + ")";
     }
 }
@@ -31,7 +31,6 @@ package pikaparser.clause.aux;
 
 import pikaparser.clause.Clause;
 import pikaparser.memotable.Match;
-import pikaparser.memotable.MemoKey;
 import pikaparser.memotable.MemoTable;
 
 /**
@@ -51,15 +50,12 @@ public class RuleRef extends Clause {
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
         throw new IllegalArgumentException(getClass().getSimpleName() + " node should not be in final grammar");
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            toStringCached = refdRuleName;
-        }
-        return toStringCached;
+    protected String toStringUncached() {
+        return refdRuleName;
     }
 }
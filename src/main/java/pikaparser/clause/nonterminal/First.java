@@ -48,8 +48,8 @@ public class First extends Clause {
         for (int subClauseIdx = 0; subClauseIdx < labeledSubClauses.length; subClauseIdx++) {
             // Up to one subclause of a First clause can match zero characters, and if present,
             // the subclause that can match zero characters must be the last subclause
-            if (labeledSubClauses[subClauseIdx].clause.canMatchZeroChars) {
-                canMatchZeroChars = true;
+            if (labeledSubClauses[subClauseIdx].clause.canMatchZeroChars()) {
+                setCanMatchZeroChars(true);
                 if (subClauseIdx < labeledSubClauses.length - 1) {
                     throw new IllegalArgumentException(
                             "Subclause " + subClauseIdx + " of " + First.class.getSimpleName()
@@ -62,32 +62,30 @@ public class First extends Clause {
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
         for (int subClauseIdx = 0; subClauseIdx < labeledSubClauses.length; subClauseIdx++) {
             var subClause = labeledSubClauses[subClauseIdx].clause;
-            var subClauseMemoKey = new MemoKey(subClause, memoKey.startPos);
-            var subClauseMatch = memoTable.lookUpBestMatch(subClauseMemoKey);
+            var subClauseMatch = memoTable.lookUpBestMatch(subClause, startPos);
             if (subClauseMatch != null) {
                 // Return a match for the first matching subclause
-                return new Match(memoKey, /* len = */ subClauseMatch.len,
-                        /* firstMatchingSubclauseIdx = */ subClauseIdx, new Match[] { subClauseMatch });
+                return new Match(new MemoKey(this, startPos), /* len = */ subClauseMatch.len,
+                        /* firstMatchingSubclauseIdx = */ subClauseIdx, memoTable.recognizeOnly
+                                ? Match.SUBCLAUSE_MATCHES_NOT_RECORDED
+                                : new Match[] { subClauseMatch });
             }
         }
         return null;
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            var buf = new StringBuilder();
-            for (int i = 0; i < labeledSubClauses.length; i++) {
-                if (i > 0) {
-                    buf.append(" / ");
-                }
-                buf.append(labeledSubClauses[i].toStringWithASTNodeLabel(this));
+    protected String toStringUncached() {
+        var buf = new StringBuilder();
+        for (int i = 0; i < labeledSubClauses.length; i++) {
+            if (i > 0) {
+                buf.append(" / ");
             }
-            toStringCached = buf.toString();
+            buf.append(labeledSubClauses[i].toStringWithASTNodeLabel(this));
         }
-        return toStringCached;
+        return buf.toString();
     }
 }
@@ -44,29 +44,25 @@ public class FollowedBy extends Clause {
     public void determineWhetherCanMatchZeroChars() {
         // Don't set canMatchZeroChars to true, because FollowedBy will only match if it subclause
         // consumes at least one matching character
-        if (labeledSubClauses[0].clause.canMatchZeroChars) {
+        if (labeledSubClauses[0].clause.canMatchZeroChars()) {
             throw new IllegalArgumentException(
                     "Subclause always matches zero characters, so this clause has no effect: " + this);
         }
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
         var labeledSubClause = labeledSubClauses[0];
-        var subClauseMemoKey = new MemoKey(labeledSubClause.clause, memoKey.startPos);
-        var subClauseMatch = memoTable.lookUpBestMatch(subClauseMemoKey);
+        var subClauseMatch = memoTable.lookUpBestMatch(labeledSubClause.clause, startPos);
         if (subClauseMatch != null) {
             // If there is any valid subclause match, return a new zero-length match
-            return new Match(memoKey);
+            return new Match(new MemoKey(this, startPos));
         }
         return null;
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            toStringCached = "&" + labeledSubClauses[0].toStringWithASTNodeLabel(this);
-        }
-        return toStringCached;
+    protected String toStringUncached() {
+        return "&" + labeledSubClauses[0].toStringWithASTNodeLabel(this);
     }
 }
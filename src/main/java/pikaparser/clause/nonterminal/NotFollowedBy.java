@@ -43,30 +43,26 @@ public class NotFollowedBy extends Clause {
     @Override
     public void determineWhetherCanMatchZeroChars() {
         // Set canMatchZeroChars to true
-        canMatchZeroChars = true;
-        if (labeledSubClauses[0].clause.canMatchZeroChars) {
+        setCanMatchZeroChars(true);
+        if (labeledSubClauses[0].clause.canMatchZeroChars()) {
             throw new IllegalArgumentException(
                     "Subclause always matches zero characters, so this clause will never match anything: " + this);
         }
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
         var labeledSubClause = labeledSubClauses[0].clause;
-        var subClauseMemoKey = new MemoKey(labeledSubClause, memoKey.startPos);
-        var subClauseMatch = memoTable.lookUpBestMatch(subClauseMemoKey);
+        var subClauseMatch = memoTable.lookUpBestMatch(labeledSubClause, startPos);
         if (subClauseMatch == null) {
             // If there is no valid subclause match, return a new zero-length match
-            return new Match(memoKey);
+            return new Match(new MemoKey(this, startPos));
         }
         return null;
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            toStringCached = "!" + labeledSubClauses[0].toStringWithASTNodeLabel(this);
-        }
-        return toStringCached;
+    protected String toStringUncached() {
+        return "!" + labeledSubClauses[0].toStringWithASTNodeLabel(this);
     }
 }
@@ -41,42 +41,42 @@ public class OneOrMore extends Clause {
 
     @Override
     public void determineWhetherCanMatchZeroChars() {
-        if (labeledSubClauses[0].clause.canMatchZeroChars) {
-            canMatchZeroChars = true;
+        if (labeledSubClauses[0].clause.canMatchZeroChars()) {
+            setCanMatchZeroChars(true);
         }
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
         var labeledSubClause = labeledSubClauses[0].clause;
-        var subClauseMemoKey = new MemoKey(labeledSubClause, memoKey.startPos);
-        var subClauseMatch = memoTable.lookUpBestMatch(subClauseMemoKey);
+        var subClauseMatch = memoTable.lookUpBestMatch(labeledSubClause, startPos);
         if (subClauseMatch == null) {
-            // Zero matches at memoKey.startPos
+            // Zero matches at startPos
             return null;
         }
 
         // Perform right-recursive match of the same OneOrMore clause, so that the memo table doesn't
         // fill up with O(M^2) entries in the number of subclause matches M.
         // If there are two or more matches, tailMatch will be non-null.
-        var tailMatchMemoKey = new MemoKey(this, memoKey.startPos + subClauseMatch.len);
-        var tailMatch = memoTable.lookUpBestMatch(tailMatchMemoKey);
+        var tailMatch = memoTable.lookUpBestMatch(this, startPos + subClauseMatch.len);
 
         // Return a new (right-recursive) match
+        if (memoTable.recognizeOnly) {
+            return new Match(new MemoKey(this, startPos),
+                    /* len = */ subClauseMatch.len + (tailMatch == null ? 0 : tailMatch.len),
+                    Match.SUBCLAUSE_MATCHES_NOT_RECORDED);
+        }
         return tailMatch == null //
                 // There is only one match => match has only one subclause
-                ? new Match(memoKey, /* len = */ subClauseMatch.len, //
+                ? new Match(new MemoKey(this, startPos), /* len = */ subClauseMatch.len, //
                         new Match[] { subClauseMatch })
                 // There are two or more matches => match has two subclauses (head, tail)
-                : new Match(memoKey, /* len = */ subClauseMatch.len + tailMatch.len, //
+                : new Match(new MemoKey(this, startPos), /* len = */ subClauseMatch.len + tailMatch.len, //
                         new Match[] { subClauseMatch, tailMatch });
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            toStringCached = labeledSubClauses[0].toStringWithASTNodeLabel(this) + "+";
-        }
-        return toStringCached;
+    protected String toStringUncached() {
+        return labeledSubClauses[0].toStringWithASTNodeLabel(this) + "+";
     }
 }
@@ -29,8 +29,6 @@
 //
 package pikaparser.clause.nonterminal;
 
-import java.util.HashSet;
-
 import pikaparser.clause.Clause;
 import pikaparser.memotable.Match;
 import pikaparser.memotable.MemoKey;
@@ -49,10 +47,10 @@ public class Seq extends Clause {
     public void determineWhetherCanMatchZeroChars() {
         // For Seq, all subclauses must be able to match zero characters for the whole clause to
         // be able to match zero characters
-        canMatchZeroChars = true;
+        setCanMatchZeroChars(true);
         for (int subClauseIdx = 0; subClauseIdx < labeledSubClauses.length; subClauseIdx++) {
-            if (!labeledSubClauses[subClauseIdx].clause.canMatchZeroChars) {
-                canMatchZeroChars = false;
+            if (!labeledSubClauses[subClauseIdx].clause.canMatchZeroChars()) {
+                setCanMatchZeroChars(false);
                 break;
             }
         }
@@ -62,14 +60,10 @@ public class Seq extends Clause {
     public void addAsSeedParentClause() {
         // All sub-clauses up to and including the first clause that matches one or more characters
         // needs to seed its parent clause if there is a subclause match
-        var added = new HashSet<>();
         for (int subClauseIdx = 0; subClauseIdx < labeledSubClauses.length; subClauseIdx++) {
             var subClause = labeledSubClauses[subClauseIdx].clause;
-            // Don't duplicate seed parent clauses in the subclause
-            if (added.add(subClause)) {
-                subClause.seedParentClauses.add(this);
-            }
-            if (!subClause.canMatchZeroChars) {
+            subClause.addSeedParentClause(this);
+            if (!subClause.canMatchZeroChars()) {
                 // Don't need to any subsequent subclauses to seed this parent clause
                 break;
             }
@@ -77,39 +71,38 @@ public class Seq extends Clause {
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
         Match[] subClauseMatches = null;
-        var currStartPos = memoKey.startPos;
+        var currStartPos = startPos;
         for (int subClauseIdx = 0; subClauseIdx < labeledSubClauses.length; subClauseIdx++) {
             var subClause = labeledSubClauses[subClauseIdx].clause;
-            var subClauseMemoKey = new MemoKey(subClause, currStartPos);
-            var subClauseMatch = memoTable.lookUpBestMatch(subClauseMemoKey);
+            var subClauseMatch = memoTable.lookUpBestMatch(subClause, currStartPos);
             if (subClauseMatch == null) {
                 // Fail after first subclause fails to match
                 return null;
             }
-            if (subClauseMatches == null) {
-                subClauseMatches = new Match[labeledSubClauses.length];
+            if (!memoTable.recognizeOnly) {
+                if (subClauseMatches == null) {
+                    subClauseMatches = new Match[labeledSubClauses.length];
+                }
+                subClauseMatches[subClauseIdx] = subClauseMatch;
             }
-            subClauseMatches[subClauseIdx] = subClauseMatch;
             currStartPos += subClauseMatch.len;
         }
         // All subclauses matched, so the Seq clause matches
-        return new Match(memoKey, /* len = */ currStartPos - memoKey.startPos, subClauseMatches);
+        return new Match(new MemoKey(this, startPos), /* len = */ currStartPos - startPos,
+                memoTable.recognizeOnly ? Match.SUBCLAUSE_MATCHES_NOT_RECORDED : subClauseMatches);
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            var buf = new StringBuilder();
-            for (int i = 0; i < labeledSubClauses.length; i++) {
-                if (i > 0) {
-                    buf.append(" ");
-                }
-                buf.append(labeledSubClauses[i].toStringWithASTNodeLabel(this));
+    protected String toStringUncached() {
+        var buf = new StringBuilder();
+        for (int i = 0; i < labeledSubClauses.length; i++) {
+            if (i > 0) {
+                buf.append(" ");
             }
-            toStringCached = buf.toString();
+            buf.append(labeledSubClauses[i].toStringWithASTNodeLabel(this));
         }
-        return toStringCached;
+        return buf.toString();
     }
 }
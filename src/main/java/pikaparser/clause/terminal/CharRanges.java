@@ -0,0 +1,144 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.clause.terminal;
+
+import java.util.BitSet;
+
+/**
+ * An immutable set of chars, stored as a sorted list of char ranges, with a 128-bit mask for fast lookup of ASCII
+ * chars. Lookup of non-ASCII chars is by binary search through the ranges, unless there are many ranges, in which
+ * case a bitmap spanning the non-ASCII ranges is used instead.
+ */
+final class CharRanges {
+    /** The first and last char of each range, in sorted order, i.e. [first0, last0, first1, last1, ...]. */
+    final char[] ranges;
+
+    /** The number of chars in the set. */
+    final int cardinality;
+
+    /** Bitmask of the chars 0-63 in the set. */
+    private final long ascii0;
+
+    /** Bitmask of the chars 64-127 in the set. */
+    private final long ascii1;
+
+    /** The index in {@link #ranges} of the first range that contains any non-ASCII char. */
+    private final int firstNonASCIIRangeIdx;
+
+    /** If there are many non-ASCII ranges, a bitmap of the non-ASCII chars, starting at {@link #bitmapStart}. */
+    private final long[] bitmap;
+
+    /** The first char in {@link #bitmap}. */
+    private final int bitmapStart;
+
+    /** The number of non-ASCII ranges above which {@link #bitmap} is used rather than binary search. */
+    private static final int MAX_NON_ASCII_RANGES_FOR_BINARY_SEARCH = 16;
+
+    CharRanges(BitSet chars) {
+        var numRanges = 0;
+        for (int i = chars.nextSetBit(0); i >= 0 && i <= Character.MAX_VALUE; i = chars.nextSetBit(i)) {
+            i = chars.nextClearBit(i);
+            numRanges++;
+        }
+        ranges = new char[numRanges * 2];
+        var rangeIdx = 0;
+        var cardinality = 0;
+        for (int i = chars.nextSetBit(0); i >= 0 && i <= Character.MAX_VALUE; i = chars.nextSetBit(i)) {
+            var end = Math.min(chars.nextClearBit(i), Character.MAX_VALUE + 1);
+            ranges[rangeIdx++] = (char) i;
+            ranges[rangeIdx++] = (char) (end - 1);
+            cardinality += end - i;
+            i = end;
+        }
+        this.cardinality = cardinality;
+
+        long ascii0 = 0L, ascii1 = 0L;
+        var firstNonASCIIRangeIdx = ranges.length;
+        for (int i = 0; i < ranges.length; i += 2) {
+            for (int c = ranges[i], last = Math.min(ranges[i + 1], 127); c <= last; c++) {
+                if (c < 64) {
+                    ascii0 |= 1L << c;
+                } else {
+                    ascii1 |= 1L << (c - 64);
+                }
+            }
+            if (ranges[i + 1] >= 128 && firstNonASCIIRangeIdx == ranges.length) {
+                firstNonASCIIRangeIdx = i;
+            }
+        }
+        this.ascii0 = ascii0;
+        this.ascii1 = ascii1;
+        this.firstNonASCIIRangeIdx = firstNonASCIIRangeIdx;
+
+        if ((ranges.length - firstNonASCIIRangeIdx) / 2 > MAX_NON_ASCII_RANGES_FOR_BINARY_SEARCH) {
+            bitmapStart = Math.max(128, ranges[firstNonASCIIRangeIdx]);
+            bitmap = new long[((ranges[ranges.length - 1] - bitmapStart) >> 6) + 1];
+            for (int i = firstNonASCIIRangeIdx; i < ranges.length; i += 2) {
+                for (int c = Math.max(128, ranges[i]), last = ranges[i + 1]; c <= last; c++) {
+                    bitmap[(c - bitmapStart) >> 6] |= 1L << (c - bitmapStart);
+                }
+            }
+        } else {
+            bitmapStart = 0;
+            bitmap = null;
+        }
+    }
+
+    /** Return true if the set contains the char. */
+    boolean contains(char c) {
+        if (c < 64) {
+            return (ascii0 & (1L << c)) != 0;
+        } else if (c < 128) {
+            return (ascii1 & (1L << (c - 64))) != 0;
+        } else if (bitmap != null) {
+            var offset = c - bitmapStart;
+            return offset >= 0 && (offset >> 6) < bitmap.length && (bitmap[offset >> 6] & (1L << offset)) != 0;
+        } else {
+            // Binary search for the last range that starts at or before c
+            int lo = firstNonASCIIRangeIdx / 2, hi = ranges.length / 2 - 1;
+            while (lo <= hi) {
+                var mid = (lo + hi) >>> 1;
+                if (ranges[mid * 2] <= c) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return hi >= 0 && c <= ranges[hi * 2 + 1];
+        }
+    }
+
+    /** Add the chars in the set to the given {@link BitSet}. */
+    void addTo(BitSet chars) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            chars.set(ranges[i], ranges[i + 1] + 1);
+        }
+    }
+}
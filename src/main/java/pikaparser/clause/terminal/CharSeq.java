@@ -33,16 +33,25 @@ import pikaparser.memotable.Match;
 import pikaparser.memotable.MemoKey;
 import pikaparser.memotable.MemoTable;
 import pikaparser.parser.utils.StringUtils;
+import pikaparser.parser.utils.Utf8Input;
 
 /** Terminal clause that matches a token in the input string. */
 public class CharSeq extends Terminal {
     public final String str;
     public final boolean ignoreCase;
 
+    /** The UTF-8 encoding of {@link #str}, with one char per byte, for matching {@link Utf8Input}. */
+    public final String utf8Str;
+
+    /** True if {@link #str} only contains ASCII characters. */
+    public final boolean isASCII;
+
     public CharSeq(String str, boolean ignoreCase) {
         super();
         this.str = str;
         this.ignoreCase = ignoreCase;
+        this.utf8Str = Utf8Input.toByteString(str);
+        this.isASCII = utf8Str.length() == str.length();
     }
 
     @Override
@@ -50,20 +59,54 @@ public class CharSeq extends Terminal {
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
-        if (memoKey.startPos <= input.length() - str.length()
-                && input.regionMatches(ignoreCase, memoKey.startPos, str, 0, str.length())) {
+    public boolean canStartWith(char c) {
+        return str.isEmpty() || (ignoreCase ? str.regionMatches(true, 0, String.valueOf(c), 0, 1) : str.charAt(0) == c);
+    }
+
+    @Override
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
+        int len;
+        if (input instanceof String) {
+            len = ((String) input).regionMatches(ignoreCase, startPos, str, 0, str.length()) ? str.length() : -1;
+        } else if (input instanceof Utf8Input) {
+            len = matchUtf8((Utf8Input) input, startPos);
+        } else {
+            len = StringUtils.regionMatches(input, startPos, str, ignoreCase) ? str.length() : -1;
+        }
+        if (len >= 0) {
             // Terminals are not memoized (i.e. don't look in the memo table)
-            return new Match(memoKey, /* len = */ str.length());
+            return new Match(new MemoKey(this, startPos), len);
         }
         return null;
     }
 
-    @Override
-    public String toString() {
-        if (toStringCached == null) {
-            toStringCached = '"' + StringUtils.escapeString(str) + '"';
+    /** Match UTF-8 input, returning the number of bytes matched, or -1 if there is no match. */
+    private int matchUtf8(Utf8Input input, int startPos) {
+        if (!ignoreCase || isASCII) {
+            // Compare bytes. Case-insensitive ASCII chars can't match the bytes of non-ASCII chars.
+            return StringUtils.regionMatches(input, startPos, utf8Str, ignoreCase) ? utf8Str.length() : -1;
+        }
+        // Decode non-ASCII chars to compare them case-insensitively
+        var pos = startPos;
+        for (int i = 0; i < str.length();) {
+            if (pos >= input.length()) {
+                return -1;
+            }
+            var codePoint = str.codePointAt(i);
+            var inputCodePoint = input.codePointAt(pos);
+            if (codePoint != inputCodePoint && (!Character.isBmpCodePoint(codePoint)
+                    || !Character.isBmpCodePoint(inputCodePoint)
+                    || !StringUtils.charsEqualIgnoreCase((char) codePoint, (char) inputCodePoint))) {
+                return -1;
+            }
+            i += Character.charCount(codePoint);
+            pos += input.codePointLen(pos);
         }
-        return toStringCached;
+        return pos - startPos;
+    }
+
+    @Override
+    protected String toStringUncached() {
+        return '"' + StringUtils.escapeString(str) + '"';
     }
 }
@@ -0,0 +1,200 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.clause.terminal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+import pikaparser.clause.nonterminal.First;
+import pikaparser.memotable.Match;
+import pikaparser.memotable.MemoKey;
+import pikaparser.memotable.MemoTable;
+import pikaparser.parser.utils.StringUtils;
+import pikaparser.parser.utils.Utf8Input;
+
+/**
+ * Terminal clause that matches the first of a list of tokens that matches the input string, i.e. that has the
+ * same semantics as a {@link First} clause whose subclauses are all case-sensitive {@link CharSeq} terminals, but
+ * that finds the matching token by walking a trie, rather than by trying each token in turn.
+ */
+public class CharSeqTrie extends Terminal {
+    /** The tokens, in order of priority. */
+    public final List<String> strs;
+
+    /** The length of the longest token. */
+    public final int maxStrLen;
+
+    /** The trie of the tokens. */
+    private final Trie trie;
+
+    /**
+     * The trie of the UTF-8 encodings of the tokens, with one char per byte, for matching {@link Utf8Input}
+     * (the same as {@link #trie} if all the tokens are ASCII).
+     */
+    private final Trie utf8Trie;
+
+    /** A trie of tokens, flattened into arrays. */
+    private static class Trie {
+        /** For each trie node, the sorted chars of the edges to its child nodes. */
+        private final char[][] nodeChildChars;
+
+        /** For each trie node, the child node index for each char in {@link #nodeChildChars}. */
+        private final int[][] nodeChildNodeIdxs;
+
+        /** For each trie node, the index in the tokens of the token that ends at the node, or -1 if none. */
+        private final int[] nodeStrIdx;
+
+        /** For each trie node, the lowest index in the tokens of the tokens that end in the node's subtree. */
+        private final int[] subtreeMinStrIdx;
+
+        Trie(String[] strs) {
+            // Build the trie
+            var children = new ArrayList<TreeMap<Character, Integer>>();
+            var strIdxs = new ArrayList<Integer>();
+            children.add(new TreeMap<>());
+            strIdxs.add(-1);
+            for (int strIdx = 0; strIdx < strs.length; strIdx++) {
+                var str = strs[strIdx];
+                var nodeIdx = 0;
+                for (int i = 0; i < str.length(); i++) {
+                    var childNodeIdx = children.get(nodeIdx).get(str.charAt(i));
+                    if (childNodeIdx == null) {
+                        childNodeIdx = children.size();
+                        children.get(nodeIdx).put(str.charAt(i), childNodeIdx);
+                        children.add(new TreeMap<>());
+                        strIdxs.add(-1);
+                    }
+                    nodeIdx = childNodeIdx;
+                }
+                if (strIdxs.get(nodeIdx) == -1) {
+                    // If a token is listed twice, only the first instance can ever match
+                    strIdxs.set(nodeIdx, strIdx);
+                }
+            }
+
+            // Flatten the trie into arrays. Child nodes always have a higher index than their parent node.
+            var numNodes = children.size();
+            nodeChildChars = new char[numNodes][];
+            nodeChildNodeIdxs = new int[numNodes][];
+            nodeStrIdx = new int[numNodes];
+            subtreeMinStrIdx = new int[numNodes];
+            for (int nodeIdx = numNodes - 1; nodeIdx >= 0; --nodeIdx) {
+                var nodeChildren = children.get(nodeIdx);
+                nodeChildChars[nodeIdx] = new char[nodeChildren.size()];
+                nodeChildNodeIdxs[nodeIdx] = new int[nodeChildren.size()];
+                nodeStrIdx[nodeIdx] = strIdxs.get(nodeIdx);
+                var minStrIdx = nodeStrIdx[nodeIdx] == -1 ? Integer.MAX_VALUE : nodeStrIdx[nodeIdx];
+                var i = 0;
+                for (var ent : nodeChildren.entrySet()) {
+                    nodeChildChars[nodeIdx][i] = ent.getKey();
+                    nodeChildNodeIdxs[nodeIdx][i++] = ent.getValue();
+                    minStrIdx = Math.min(minStrIdx, subtreeMinStrIdx[ent.getValue()]);
+                }
+                subtreeMinStrIdx[nodeIdx] = minStrIdx;
+            }
+        }
+
+        /** Get the length of the highest-priority token that matches at startPos, or 0 if none matches. */
+        int match(CharSequence input, int startPos) {
+            var bestStrIdx = Integer.MAX_VALUE;
+            var bestLen = 0;
+            var nodeIdx = 0;
+            // Walk down the trie until there is no matching edge, or until no token in the subtree can be a
+            // higher-priority match than the best match found so far
+            for (int pos = startPos; pos < input.length() && subtreeMinStrIdx[nodeIdx] < bestStrIdx; pos++) {
+                var childIdx = Arrays.binarySearch(nodeChildChars[nodeIdx], input.charAt(pos));
+                if (childIdx < 0) {
+                    break;
+                }
+                nodeIdx = nodeChildNodeIdxs[nodeIdx][childIdx];
+                var strIdx = nodeStrIdx[nodeIdx];
+                if (strIdx != -1 && strIdx < bestStrIdx) {
+                    bestStrIdx = strIdx;
+                    bestLen = pos + 1 - startPos;
+                }
+            }
+            return bestLen;
+        }
+    }
+
+    public CharSeqTrie(String... strs) {
+        super();
+        if (strs.length == 0) {
+            throw new IllegalArgumentException("Must provide at least one string");
+        }
+        this.strs = List.of(strs);
+        this.maxStrLen = Arrays.stream(strs).mapToInt(String::length).max().getAsInt();
+        var utf8Strs = new String[strs.length];
+        var isASCII = true;
+        for (int i = 0; i < strs.length; i++) {
+            if (strs[i].isEmpty()) {
+                throw new IllegalArgumentException(CharSeqTrie.class.getSimpleName() + " strings cannot be empty");
+            }
+            utf8Strs[i] = Utf8Input.toByteString(strs[i]);
+            isASCII &= utf8Strs[i].length() == strs[i].length();
+        }
+        this.trie = new Trie(strs);
+        this.utf8Trie = isASCII ? trie : new Trie(utf8Strs);
+    }
+
+    @Override
+    public void determineWhetherCanMatchZeroChars() {
+    }
+
+    @Override
+    public boolean canStartWith(char c) {
+        return Arrays.binarySearch(trie.nodeChildChars[0], c) >= 0;
+    }
+
+    @Override
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
+        var len = (input instanceof Utf8Input ? utf8Trie : trie).match(input, startPos);
+        if (len > 0) {
+            // Terminals are not memoized (i.e. don't look in the memo table)
+            return new Match(new MemoKey(this, startPos), len, Match.NO_SUBCLAUSE_MATCHES);
+        }
+        return null;
+    }
+
+    @Override
+    protected String toStringUncached() {
+        // Parenthesize, so that the toString() value of a parent clause reads correctly
+        var buf = new StringBuilder("(");
+        for (int i = 0; i < strs.size(); i++) {
+            if (i > 0) {
+                buf.append(" / ");
+            }
+            buf.append('"').append(StringUtils.escapeString(strs.get(i))).append('"');
+        }
+        return buf.append(')').toString();
+    }
+}
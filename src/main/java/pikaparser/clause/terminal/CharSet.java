@@ -35,19 +35,21 @@ import pikaparser.memotable.Match;
 import pikaparser.memotable.MemoKey;
 import pikaparser.memotable.MemoTable;
 import pikaparser.parser.utils.StringUtils;
+import pikaparser.parser.utils.Utf8Input;
 
 /** Terminal clause that matches a character or sequence of characters. */
 public class CharSet extends Terminal {
 
-    private BitSet chars;
-    private BitSet invertedChars;
+    private CharRanges chars;
+    private CharRanges invertedChars;
 
     public CharSet(char... chars) {
         super();
-        this.chars = new BitSet(0xffff);
+        var charsBitSet = new BitSet(0xffff);
         for (int i = 0; i < chars.length; i++) {
-            this.chars.set(chars[i]);
+            charsBitSet.set(chars[i]);
         }
+        this.chars = new CharRanges(charsBitSet);
     }
 
     public CharSet(CharSet... charSets) {
@@ -55,23 +57,23 @@ public class CharSet extends Terminal {
         if (charSets.length == 0) {
             throw new IllegalArgumentException("Must provide at least one CharSet");
         }
-        this.chars = new BitSet(0xffff);
+        var charsBitSet = new BitSet(0xffff);
+        BitSet invertedCharsBitSet = null;
         for (CharSet charSet : charSets) {
             if (charSet.chars != null) {
-                for (int i = charSet.chars.nextSetBit(0); i >= 0; i = charSet.chars.nextSetBit(i + 1)) {
-                    this.chars.set(i);
-                }
+                charSet.chars.addTo(charsBitSet);
             }
             if (charSet.invertedChars != null) {
-                if (this.invertedChars == null) {
-                    this.invertedChars = new BitSet(0xffff);
-                }
-                for (int i = charSet.invertedChars.nextSetBit(0); i >= 0; i = charSet.invertedChars
-                        .nextSetBit(i + 1)) {
-                    this.invertedChars.set(i);
+                if (invertedCharsBitSet == null) {
+                    invertedCharsBitSet = new BitSet(0xffff);
                 }
+                charSet.invertedChars.addTo(invertedCharsBitSet);
             }
         }
+        this.chars = new CharRanges(charsBitSet);
+        if (invertedCharsBitSet != null) {
+            this.invertedChars = new CharRanges(invertedCharsBitSet);
+        }
     }
 
     public CharSet(BitSet chars) {
@@ -79,7 +81,40 @@ public class CharSet extends Terminal {
         if (chars.cardinality() == 0) {
             throw new IllegalArgumentException("Must provide at least one char in a CharSet");
         }
-        this.chars = chars;
+        this.chars = new CharRanges(chars);
+    }
+
+    /**
+     * Construct a {@link CharSet} from the char ranges returned by {@link #getCharRanges()} and
+     * {@link #getInvertedCharRanges()}.
+     */
+    public static CharSet fromCharRanges(char[] charRanges, char[] invertedCharRanges) {
+        var charSet = new CharSet(new char[0]);
+        charSet.chars = charRanges == null ? null : new CharRanges(toBitSet(charRanges));
+        charSet.invertedChars = invertedCharRanges == null ? null : new CharRanges(toBitSet(invertedCharRanges));
+        return charSet;
+    }
+
+    /** Convert char ranges to a {@link BitSet}. */
+    private static BitSet toBitSet(char[] charRanges) {
+        var chars = new BitSet(0xffff);
+        for (int i = 0; i < charRanges.length; i += 2) {
+            chars.set(charRanges[i], charRanges[i + 1] + 1);
+        }
+        return chars;
+    }
+
+    /**
+     * Get the chars in this set, as the first and last char of each range, in sorted order, or null if there are
+     * only inverted chars.
+     */
+    public char[] getCharRanges() {
+        return chars == null ? null : chars.ranges.clone();
+    }
+
+    /** Get the inverted chars in this set, in the same format as {@link #getCharRanges()}, or null if none. */
+    public char[] getInvertedCharRanges() {
+        return invertedChars == null ? null : invertedChars.ranges.clone();
     }
 
     /** Invert in-place, and return this. */
@@ -87,7 +122,7 @@ public class CharSet extends Terminal {
         var tmp = chars;
         chars = invertedChars;
         invertedChars = tmp;
-        toStringCached = null;
+        clearToStringCache();
         return this;
     }
 
@@ -95,22 +130,47 @@ public class CharSet extends Terminal {
     public void determineWhetherCanMatchZeroChars() {
     }
 
+    /** Return true if this set contains the given char. */
+    private boolean contains(char c) {
+        return (chars != null && chars.contains(c)) || (invertedChars != null && !invertedChars.contains(c));
+    }
+
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
-        if (memoKey.startPos < input.length()) {
-            char c = input.charAt(memoKey.startPos);
-            if ((chars != null && chars.get(c)) || (invertedChars != null && !invertedChars.get(c))) {
+    public boolean canStartWith(char c) {
+        return contains(c);
+    }
+
+    @Override
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
+        if (startPos < input.length()) {
+            char c = input.charAt(startPos);
+            if (c >= 0x80 && input instanceof Utf8Input) {
+                // Decode a non-ASCII char. A supplementary code point is matched if both of its surrogate chars
+                // are in this set.
+                var utf8Input = (Utf8Input) input;
+                if (utf8Input.isInsideCodePoint(startPos)) {
+                    // Don't match the continuation bytes of a char separately
+                    return null;
+                }
+                var codePoint = utf8Input.codePointAt(startPos);
+                if (Character.isBmpCodePoint(codePoint) ? contains((char) codePoint)
+                        : contains(Character.highSurrogate(codePoint))
+                                && contains(Character.lowSurrogate(codePoint))) {
+                    return new Match(new MemoKey(this, startPos), /* len = */ utf8Input.codePointLen(startPos),
+                            Match.NO_SUBCLAUSE_MATCHES);
+                }
+            } else if (contains(c)) {
                 // Terminals are not memoized (i.e. don't look in the memo table)
-                return new Match(memoKey, /* len = */ 1, Match.NO_SUBCLAUSE_MATCHES);
+                return new Match(new MemoKey(this, startPos), /* len = */ 1, Match.NO_SUBCLAUSE_MATCHES);
             }
         }
         return null;
     }
 
-    private static void toString(BitSet chars, int cardinality, boolean inverted, StringBuilder buf) {
-        boolean isSingleChar = !inverted && cardinality == 1;
+    private static void toString(CharRanges chars, boolean inverted, StringBuilder buf) {
+        boolean isSingleChar = !inverted && chars.cardinality == 1;
         if (isSingleChar) {
-            char c = (char) chars.nextSetBit(0);
+            char c = chars.ranges[0];
             buf.append('\'');
             buf.append(StringUtils.escapeQuotedChar(c));
             buf.append('\'');
@@ -119,20 +179,17 @@ public class CharSet extends Terminal {
             if (inverted) {
                 buf.append('^');
             }
-            for (int i = chars.nextSetBit(0); i >= 0; i = chars.nextSetBit(i + 1)) {
-                buf.append(StringUtils.escapeCharRangeChar((char) i));
-                if (i < chars.size() - 1 && chars.get(i + 1)) {
+            for (int i = 0; i < chars.ranges.length; i += 2) {
+                char first = chars.ranges[i];
+                char last = chars.ranges[i + 1];
+                buf.append(StringUtils.escapeCharRangeChar(first));
+                if (last > first) {
                     // Contiguous char range
-                    int end = i + 2;
-                    while (end < chars.size() && chars.get(end)) {
-                        end++;
-                    }
-                    int numCharsSpanned = end - i;
+                    int numCharsSpanned = last - first + 1;
                     if (numCharsSpanned > 2) {
                         buf.append('-');
                     }
-                    buf.append(StringUtils.escapeCharRangeChar((char) (end - 1)));
-                    i = end - 1;
+                    buf.append(StringUtils.escapeCharRangeChar(last));
                 }
             }
             buf.append(']');
@@ -140,29 +197,26 @@ public class CharSet extends Terminal {
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            var buf = new StringBuilder();
-            var charsCardinality = chars == null ? 0 : chars.cardinality();
-            var invertedCharsCardinality = invertedChars == null ? 0 : invertedChars.cardinality();
-            var invertedAndNot = charsCardinality > 0 && invertedCharsCardinality > 0;
-            if (invertedAndNot) {
-                buf.append('(');
-            }
-            if (charsCardinality > 0) {
-                toString(chars, charsCardinality, false, buf);
-            }
-            if (invertedAndNot) {
-                buf.append(" | ");
-            }
-            if (invertedCharsCardinality > 0) {
-                toString(invertedChars, invertedCharsCardinality, true, buf);
-            }
-            if (invertedAndNot) {
-                buf.append(')');
-            }
-            toStringCached = buf.toString();
+    protected String toStringUncached() {
+        var buf = new StringBuilder();
+        var charsCardinality = chars == null ? 0 : chars.cardinality;
+        var invertedCharsCardinality = invertedChars == null ? 0 : invertedChars.cardinality;
+        var invertedAndNot = charsCardinality > 0 && invertedCharsCardinality > 0;
+        if (invertedAndNot) {
+            buf.append('(');
+        }
+        if (charsCardinality > 0) {
+            toString(chars, false, buf);
+        }
+        if (invertedAndNot) {
+            buf.append(" | ");
+        }
+        if (invertedCharsCardinality > 0) {
+            toString(invertedChars, true, buf);
+        }
+        if (invertedAndNot) {
+            buf.append(')');
         }
-        return toStringCached;
+        return buf.toString();
     }
 }
@@ -43,20 +43,17 @@ public class Nothing extends Terminal {
 
     @Override
     public void determineWhetherCanMatchZeroChars() {
-        canMatchZeroChars = true;
+        setCanMatchZeroChars(true);
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
         // Return a new zero-length match
-        return new Match(memoKey);
+        return new Match(new MemoKey(this, startPos));
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            toStringCached = NOTHING_STR;
-        }
-        return toStringCached;
+    protected String toStringUncached() {
+        return NOTHING_STR;
     }
 }
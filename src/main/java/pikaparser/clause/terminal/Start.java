@@ -43,23 +43,20 @@ public class Start extends Terminal {
 
     @Override
     public void determineWhetherCanMatchZeroChars() {
-        canMatchZeroChars = true;
+        setCanMatchZeroChars(true);
     }
 
     @Override
-    public Match match(MemoTable memoTable, MemoKey memoKey, String input) {
-        if (memoKey.startPos == 0) {
+    public Match match(MemoTable memoTable, int startPos, CharSequence input) {
+        if (startPos == 0) {
             // Return new zero-length match
-            return new Match(memoKey);
+            return new Match(new MemoKey(this, startPos));
         }
         return null;
     }
 
     @Override
-    public String toString() {
-        if (toStringCached == null) {
-            toStringCached = START_STR;
-        }
-        return toStringCached;
+    protected String toStringUncached() {
+        return START_STR;
     }
 }
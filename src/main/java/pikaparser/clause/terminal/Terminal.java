@@ -37,4 +37,13 @@ public abstract class Terminal extends Clause {
         // Terminals have no subclauses
         super(new Clause[0]);
     }
+
+    /**
+     * Return false if this terminal cannot match at a start position where the input character is c. Used to find
+     * which terminals need to be matched at each start position. The default implementation returns true, since
+     * only subclasses know which characters they can start with.
+     */
+    public boolean canStartWith(char c) {
+        return true;
+    }
 }
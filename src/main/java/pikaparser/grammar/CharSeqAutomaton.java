@@ -0,0 +1,249 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.grammar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import pikaparser.clause.terminal.CharSeq;
+import pikaparser.memotable.Match;
+import pikaparser.memotable.MemoKey;
+import pikaparser.memotable.TerminalMatches;
+import pikaparser.parser.utils.StringUtils;
+import pikaparser.parser.utils.Utf8Input;
+
+/**
+ * An Aho-Corasick automaton built from all the {@link CharSeq} terminals in a grammar, which finds the matches of
+ * every {@link CharSeq} in a single pass over the input, rather than trying to match each {@link CharSeq} at each
+ * start position separately.
+ * 
+ * <p>
+ * Characters are case-folded before being added to the automaton, so that {@link CharSeq} terminals with
+ * {@link CharSeq#ignoreCase} set can share the automaton with case-sensitive terminals. Case-sensitive matches are
+ * verified against the input when they are found.
+ * 
+ * <p>
+ * An automaton for {@link Utf8Input} is built from the UTF-8 encodings of the {@link CharSeq} terminals (see
+ * {@link CharSeq#utf8Str}), so that matches are found at byte offsets. Bytes of non-ASCII chars can't be
+ * case-folded, so case-insensitive {@link CharSeq} terminals that contain non-ASCII chars are matched separately
+ * at each start position.
+ */
+public class CharSeqAutomaton {
+    /** True if this automaton matches {@link Utf8Input}. */
+    private final boolean utf8;
+
+    /** The {@link CharSeq} terminals that match the empty string, which match at every start position. */
+    private final CharSeq[] emptyCharSeqs;
+
+    /** The {@link CharSeq} terminals that are not in the automaton, which are matched at every start position. */
+    private final CharSeq[] unindexedCharSeqs;
+
+    /** The (case-folded) characters on the outgoing edges of each state, in sorted order. */
+    private final char[][] stateToEdgeChars;
+
+    /** The target state of each outgoing edge of each state. */
+    private final int[][] stateToEdgeTargetStates;
+
+    /** The state reached by following the longest proper suffix of each state's string that is also a state. */
+    private final int[] stateToFailureState;
+
+    /**
+     * The state for the longest proper suffix of each state's string that is the end of a {@link CharSeq}, or 0
+     * if there is no such suffix.
+     */
+    private final int[] stateToOutputSuffixState;
+
+    /** The {@link CharSeq} terminals that end at each state. */
+    private final CharSeq[][] stateToCharSeqs;
+
+    /** Build the automaton for the given {@link CharSeq} terminals. */
+    public CharSeqAutomaton(List<CharSeq> charSeqs) {
+        this(charSeqs, /* utf8 = */ false);
+    }
+
+    /**
+     * Build the automaton for the given {@link CharSeq} terminals, for matching {@link Utf8Input} if utf8 is true,
+     * or any other input if utf8 is false.
+     */
+    public CharSeqAutomaton(List<CharSeq> charSeqs, boolean utf8) {
+        this.utf8 = utf8;
+
+        // Build the trie
+        var edges = new ArrayList<TreeMap<Character, Integer>>();
+        var charSeqsAtState = new ArrayList<List<CharSeq>>();
+        edges.add(new TreeMap<>());
+        charSeqsAtState.add(new ArrayList<>());
+        var emptyCharSeqsList = new ArrayList<CharSeq>();
+        var unindexedCharSeqsList = new ArrayList<CharSeq>();
+        for (var charSeq : charSeqs) {
+            if (charSeq.str.isEmpty()) {
+                emptyCharSeqsList.add(charSeq);
+                continue;
+            } else if (utf8 && charSeq.ignoreCase && !charSeq.isASCII) {
+                unindexedCharSeqsList.add(charSeq);
+                continue;
+            }
+            var str = getStr(charSeq);
+            var state = 0;
+            for (int i = 0; i < str.length(); i++) {
+                var c = fold(str.charAt(i));
+                var nextState = edges.get(state).get(c);
+                if (nextState == null) {
+                    nextState = edges.size();
+                    edges.get(state).put(c, nextState);
+                    edges.add(new TreeMap<>());
+                    charSeqsAtState.add(new ArrayList<>());
+                }
+                state = nextState;
+            }
+            charSeqsAtState.get(state).add(charSeq);
+        }
+        emptyCharSeqs = emptyCharSeqsList.toArray(new CharSeq[0]);
+        unindexedCharSeqs = unindexedCharSeqsList.toArray(new CharSeq[0]);
+
+        var numStates = edges.size();
+        stateToEdgeChars = new char[numStates][];
+        stateToEdgeTargetStates = new int[numStates][];
+        stateToCharSeqs = new CharSeq[numStates][];
+        for (int state = 0; state < numStates; state++) {
+            var stateEdges = edges.get(state);
+            stateToEdgeChars[state] = new char[stateEdges.size()];
+            stateToEdgeTargetStates[state] = new int[stateEdges.size()];
+            var edgeIdx = 0;
+            for (var ent : stateEdges.entrySet()) {
+                stateToEdgeChars[state][edgeIdx] = ent.getKey();
+                stateToEdgeTargetStates[state][edgeIdx] = ent.getValue();
+                edgeIdx++;
+            }
+            stateToCharSeqs[state] = charSeqsAtState.get(state).toArray(new CharSeq[0]);
+        }
+
+        // Find failure and output links, breadth first, so that the links of shorter strings are found first
+        stateToFailureState = new int[numStates];
+        stateToOutputSuffixState = new int[numStates];
+        var queue = new int[numStates];
+        int queueHead = 0, queueTail = 0;
+        for (var targetState : stateToEdgeTargetStates[0]) {
+            queue[queueTail++] = targetState;
+        }
+        while (queueHead < queueTail) {
+            var state = queue[queueHead++];
+            for (int i = 0; i < stateToEdgeChars[state].length; i++) {
+                var c = stateToEdgeChars[state][i];
+                var targetState = stateToEdgeTargetStates[state][i];
+                var failureState = stateToFailureState[state];
+                var failureTargetState = nextState(failureState, c);
+                while (failureTargetState < 0 && failureState != 0) {
+                    failureState = stateToFailureState[failureState];
+                    failureTargetState = nextState(failureState, c);
+                }
+                failureTargetState = failureTargetState < 0 ? 0 : failureTargetState;
+                stateToFailureState[targetState] = failureTargetState;
+                stateToOutputSuffixState[targetState] = stateToCharSeqs[failureTargetState].length > 0
+                        ? failureTargetState
+                        : stateToOutputSuffixState[failureTargetState];
+                queue[queueTail++] = targetState;
+            }
+        }
+    }
+
+    /** Get the string that the automaton matches for a {@link CharSeq}. */
+    private String getStr(CharSeq charSeq) {
+        return utf8 ? charSeq.utf8Str : charSeq.str;
+    }
+
+    /** Case-fold a character, consistent with {@link String#regionMatches(boolean, int, String, int, int)}. */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /** Get the target state of the edge from the given state labeled with character c, or -1 if there is none. */
+    private int nextState(int state, char c) {
+        var edgeChars = stateToEdgeChars[state];
+        int lo = 0, hi = edgeChars.length - 1;
+        while (lo <= hi) {
+            var mid = (lo + hi) >>> 1;
+            var edgeChar = edgeChars[mid];
+            if (edgeChar < c) {
+                lo = mid + 1;
+            } else if (edgeChar > c) {
+                hi = mid - 1;
+            } else {
+                return stateToEdgeTargetStates[state][mid];
+            }
+        }
+        return -1;
+    }
+
+    /** Find the matches of all {@link CharSeq} terminals at all start positions in the input. */
+    public TerminalMatches findMatches(CharSequence input) {
+        var matches = new ArrayList<Match>();
+        for (var charSeq : emptyCharSeqs) {
+            for (int startPos = 0; startPos < input.length(); startPos++) {
+                matches.add(new Match(new MemoKey(charSeq, startPos), /* len = */ 0));
+            }
+        }
+        for (var charSeq : unindexedCharSeqs) {
+            for (int startPos = 0; startPos < input.length(); startPos++) {
+                var match = charSeq.match(/* memoTable = */ null, startPos, input);
+                if (match != null) {
+                    matches.add(match);
+                }
+            }
+        }
+        var state = 0;
+        for (int endPos = 0; endPos < input.length(); endPos++) {
+            var c = fold(input.charAt(endPos));
+            var targetState = nextState(state, c);
+            while (targetState < 0 && state != 0) {
+                state = stateToFailureState[state];
+                targetState = nextState(state, c);
+            }
+            state = targetState < 0 ? 0 : targetState;
+
+            // Find all the CharSeqs that end at this position
+            for (int outputState = state; outputState != 0; outputState = stateToOutputSuffixState[outputState]) {
+                for (var charSeq : stateToCharSeqs[outputState]) {
+                    var str = getStr(charSeq);
+                    var len = str.length();
+                    var startPos = endPos + 1 - len;
+                    // Case-sensitive CharSeqs were matched case-insensitively, so need to be checked
+                    if (charSeq.ignoreCase || (input instanceof String ? ((String) input).startsWith(str, startPos)
+                            : StringUtils.regionMatches(input, startPos, str, /* ignoreCase = */ false))) {
+                        matches.add(new Match(new MemoKey(charSeq, startPos), len));
+                    }
+                }
+            }
+        }
+        return new TerminalMatches(input.length(), matches);
+    }
+
+}
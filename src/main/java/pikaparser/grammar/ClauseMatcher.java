@@ -0,0 +1,79 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.grammar;
+
+import pikaparser.clause.Clause;
+import pikaparser.memotable.Match;
+import pikaparser.memotable.MemoTable;
+
+/**
+ * Matches the clauses of a {@link Grammar} in the main parsing loop. {@link Grammar#compile()} returns a matcher
+ * that is specialized for the grammar, or, if the grammar can't be compiled, a matcher that calls
+ * {@link Clause#match(MemoTable, int, CharSequence)}. Set {@link ParseOptions#clauseMatcher} to use a matcher.
+ */
+public abstract class ClauseMatcher {
+    /** The grammar whose clauses this matcher matches. */
+    public final Grammar grammar;
+
+    protected ClauseMatcher(Grammar grammar) {
+        this.grammar = grammar;
+    }
+
+    /**
+     * Match a clause of {@link #grammar} at the given start position, returning the same result as
+     * {@link Clause#match(MemoTable, int, CharSequence)}.
+     */
+    public abstract Match match(Clause clause, MemoTable memoTable, int startPos, String input);
+
+    /** Return true if this matcher was specialized for the grammar, or false if it falls back to the clauses. */
+    public boolean isCompiled() {
+        return true;
+    }
+
+    /**
+     * A {@link ClauseMatcher} that matches each clause by calling
+     * {@link Clause#match(MemoTable, int, CharSequence)}.
+     */
+    static class Interpreter extends ClauseMatcher {
+        Interpreter(Grammar grammar) {
+            super(grammar);
+        }
+
+        @Override
+        public Match match(Clause clause, MemoTable memoTable, int startPos, String input) {
+            return clause.match(memoTable, startPos, input);
+        }
+
+        @Override
+        public boolean isCompiled() {
+            return false;
+        }
+    }
+}
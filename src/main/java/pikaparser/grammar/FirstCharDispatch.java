@@ -0,0 +1,127 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.grammar;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import pikaparser.clause.Clause;
+import pikaparser.clause.terminal.CharSeq;
+import pikaparser.clause.terminal.Terminal;
+
+/**
+ * A table from the input character at a start position to the terminals that can match starting with that
+ * character, so that only those terminals need to be matched at that position. {@link CharSeq} terminals are
+ * indexed separately, since they are usually matched by {@link CharSeqAutomaton} instead.
+ */
+public class FirstCharDispatch {
+    /**
+     * The terminals other than {@link CharSeq} that can start with each ASCII character, followed by the terminals
+     * that can start with at least one non-ASCII character.
+     */
+    private final Clause[][] charToTerminals;
+
+    /** The {@link CharSeq} terminals, indexed in the same way as {@link #charToTerminals}. */
+    private final Clause[][] charToCharSeqs;
+
+    /**
+     * The seed parent clauses of terminals that can match zero characters. These would be scheduled by
+     * {@link pikaparser.memotable.MemoTable#addMatch} even when the terminal does not match, so they need to be
+     * scheduled at every start position, whether or not the terminal is matched there.
+     */
+    private final Clause[] zeroLengthSeedParentClauses;
+
+    /** The index in the tables for terminals that can start with a non-ASCII character. */
+    private static final int NON_ASCII_IDX = 128;
+
+    public FirstCharDispatch(List<Clause> terminals) {
+        var zeroLengthSeedParentClausesSet = new LinkedHashSet<Clause>();
+        for (var terminal : terminals) {
+            for (var seedParentClause : terminal.getSeedParentClauses()) {
+                if (seedParentClause.canMatchZeroChars()) {
+                    zeroLengthSeedParentClausesSet.add(seedParentClause);
+                }
+            }
+        }
+        zeroLengthSeedParentClauses = zeroLengthSeedParentClausesSet.toArray(new Clause[0]);
+        charToTerminals = buildTable(terminals.stream().filter(clause -> !(clause instanceof CharSeq))
+                .collect(Collectors.toList()));
+        charToCharSeqs = buildTable(
+                terminals.stream().filter(clause -> clause instanceof CharSeq).collect(Collectors.toList()));
+    }
+
+    /** Index the terminals by the characters they can start with. */
+    private static Clause[][] buildTable(List<Clause> terminals) {
+        var table = new Clause[NON_ASCII_IDX + 1][];
+        for (int c = 0; c < NON_ASCII_IDX; c++) {
+            var terminalsForChar = new ArrayList<Clause>();
+            for (var terminal : terminals) {
+                if (((Terminal) terminal).canStartWith((char) c)) {
+                    terminalsForChar.add(terminal);
+                }
+            }
+            table[c] = terminalsForChar.toArray(new Clause[0]);
+        }
+        var nonASCIICharTerminals = new ArrayList<Clause>();
+        for (var terminal : terminals) {
+            for (int c = NON_ASCII_IDX; c <= Character.MAX_VALUE; c++) {
+                if (((Terminal) terminal).canStartWith((char) c)) {
+                    nonASCIICharTerminals.add(terminal);
+                    break;
+                }
+            }
+        }
+        table[NON_ASCII_IDX] = nonASCIICharTerminals.toArray(new Clause[0]);
+        return table;
+    }
+
+    /**
+     * Get the terminals other than {@link CharSeq} that can match at a start position where the input character
+     * is c.
+     */
+    public Clause[] getTerminals(char c) {
+        return charToTerminals[Math.min(c, NON_ASCII_IDX)];
+    }
+
+    /** Get the {@link CharSeq} terminals that can match at a start position where the input character is c. */
+    public Clause[] getCharSeqs(char c) {
+        return charToCharSeqs[Math.min(c, NON_ASCII_IDX)];
+    }
+
+    /**
+     * Get the clauses that need to be scheduled at every start position, whether or not any terminal matches
+     * there.
+     */
+    public Clause[] getZeroLengthSeedParentClauses() {
+        return zeroLengthSeedParentClauses;
+    }
+}
@@ -29,42 +29,101 @@
 //
 package pikaparser.grammar;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import pikaparser.clause.Clause;
 import pikaparser.clause.aux.RuleRef;
+import pikaparser.clause.terminal.CharSeq;
+import pikaparser.clause.terminal.CharSeqTrie;
 import pikaparser.clause.terminal.Nothing;
 import pikaparser.clause.terminal.Terminal;
+import pikaparser.memotable.ClauseQueue;
 import pikaparser.memotable.Match;
-import pikaparser.memotable.MemoKey;
 import pikaparser.memotable.MemoTable;
+import pikaparser.memotable.TerminalMatches;
+import pikaparser.parser.utils.CharSequenceReader;
+import pikaparser.parser.utils.GrammarOptimizer;
 import pikaparser.parser.utils.GrammarUtils;
 import pikaparser.parser.utils.StringUtils;
+import pikaparser.parser.utils.Utf8Input;
 
-/** A grammar. The {@link #parse(String)} method runs the parser on the provided input string. */
+/**
+ * A grammar. The {@link #parse(String)} method runs the parser on the provided input string.
+ * 
+ * <p>
+ * A grammar is not modified after it has been constructed (all state that changes during a parse is held by the
+ * {@link MemoTable} for the parse), and all of its clauses are reachable through its final fields, so a grammar
+ * can be shared between threads, and can run any number of parses concurrently.
+ */
 public class Grammar {
     /** All rules in the grammar. */
     public final List<Rule> allRules;
 
     /** A mapping from rule name (with any precedence suffix) to the corresponding {@link Rule}. */
-    public Map<String, Rule> ruleNameWithPrecedenceToRule;
+    public final Map<String, Rule> ruleNameWithPrecedenceToRule;
 
     /** All clausesin the grammar. */
     public final List<Clause> allClauses;
 
-    /** If true, print verbose debug output. */
-    public static boolean DEBUG = false;
+    /** The terminals that can match at a start position, indexed by the input character at that position. */
+    public final FirstCharDispatch firstCharDispatch;
+
+    /** The length of the longest terminal match (at least 1). */
+    public final int maxTerminalLen;
+
+    /** An automaton that finds the matches of all {@link CharSeq} terminals in one pass over the input. */
+    public final CharSeqAutomaton charSeqAutomaton;
+
+    /**
+     * The {@link CharSeqAutomaton} for {@link Utf8Input} (the same as {@link #charSeqAutomaton} if all
+     * {@link CharSeq} terminals are ASCII).
+     */
+    public final CharSeqAutomaton utf8CharSeqAutomaton;
+
+    /**
+     * If true, print verbose debug output. Set by the system property "pikaparser.debug", e.g.
+     * -Dpikaparser.debug=true.
+     */
+    public static final boolean DEBUG = Boolean.getBoolean("pikaparser.debug");
+
+    /**
+     * The maximum factor by which {@link #parseStreaming(Reader, String, int, ParseOptions, StreamingMatchHandler)}
+     * grows the window to fit a match of the synchronization rule.
+     */
+    public static final int MAX_STREAMING_WINDOW_GROWTH = 16;
+
+    /** The maximum size of a Java array. */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /** The matcher compiled for {@link ParseOptions#compileGrammar}, or null if not yet compiled. */
+    private ClauseMatcher compiledClauseMatcher;
 
     /** Construct a grammar from a set of rules. The first rule should be the toplevel rule. */
     public Grammar(List<Rule> rules) {
+        this(rules, /* optimize = */ false);
+    }
+
+    /**
+     * Construct a grammar from a set of rules. The first rule should be the toplevel rule. If optimize is true,
+     * the alternatives of {@link pikaparser.clause.nonterminal.First} clauses are merged and left-factored, and
+     * single-use clauses are inlined into their parent clauses (see {@link GrammarOptimizer}), which changes the
+     * clauses in {@link #allClauses} and their order.
+     */
+    public Grammar(List<Rule> rules, boolean optimize) {
         if (rules.size() == 0) {
             throw new IllegalArgumentException("Grammar must consist of at least one rule");
         }
@@ -95,7 +154,7 @@ public class Grammar {
             // they don't have to check for infinite recursion)
             GrammarUtils.checkNoRefCycles(rule.labeledClause.clause, rule.ruleName, new HashSet<Clause>());
         }
-        allRules = new ArrayList<>(rules);
+        allRules = List.copyOf(rules);
         var ruleNameToLowestPrecedenceLevelRuleName = new HashMap<String, String>();
         var lowestPrecedenceClauses = new ArrayList<Clause>();
         for (var ent : ruleNameToRules.entrySet()) {
@@ -111,14 +170,15 @@ public class Grammar {
         // If there is more than one precedence level for a rule, the handlePrecedence call above modifies
         // rule names to include a precedence suffix, and also adds an all-precedence selector clause with the
         // original rule name. All rule names should now be unique.
-        ruleNameWithPrecedenceToRule = new HashMap<>();
+        var ruleNameWithPrecedenceToRuleMap = new HashMap<String, Rule>();
         for (var rule : allRules) {
             // The handlePrecedence call above added the precedence to the rule name as a suffix
-            if (ruleNameWithPrecedenceToRule.put(rule.ruleName, rule) != null) {
+            if (ruleNameWithPrecedenceToRuleMap.put(rule.ruleName, rule) != null) {
                 // Should not happen
                 throw new IllegalArgumentException("Duplicate rule name " + rule.ruleName);
             }
         }
+        ruleNameWithPrecedenceToRule = Map.copyOf(ruleNameWithPrecedenceToRuleMap);
 
         // Register each rule with its toplevel clause (used in the clause's toString() method)
         for (var rule : allRules) {
@@ -135,6 +195,17 @@ public class Grammar {
             rule.labeledClause.clause = GrammarUtils.intern(rule.labeledClause.clause, toStringToClause);
         }
 
+        // Merge and left-factor the alternatives of First clauses, so that fewer clauses need to be matched
+        if (optimize) {
+            GrammarOptimizer.optimize(allRules, lowestPrecedenceClauses, ruleNameWithPrecedenceToRule,
+                    ruleNameToLowestPrecedenceLevelRuleName, toStringToClause);
+
+            // Inline single-use clauses into their parent clauses, and collapse redundant clauses, so that fewer
+            // clauses need to be memoized at each start position
+            GrammarOptimizer.inlineSingleUseClauses(allRules, lowestPrecedenceClauses,
+                    ruleNameWithPrecedenceToRule, ruleNameToLowestPrecedenceLevelRuleName, toStringToClause);
+        }
+
         // Resolve each RuleRef into a direct reference to the referenced clause
         Set<Clause> clausesVisitedResolveRuleRefs = new HashSet<>();
         for (var rule : allRules) {
@@ -143,7 +214,8 @@ public class Grammar {
         }
 
         // Topologically sort clauses, bottom-up, placing the result in allClauses
-        allClauses = GrammarUtils.findClauseTopoSortOrder(topLevelRule, allRules, lowestPrecedenceClauses);
+        allClauses = List
+                .copyOf(GrammarUtils.findClauseTopoSortOrder(topLevelRule, allRules, lowestPrecedenceClauses));
 
         // Find clauses that always match zero or more characters, e.g. FirstMatch(X | Nothing).
         // Importantly, allClauses is in reverse topological order, i.e. traversal is bottom-up.
@@ -155,20 +227,152 @@ public class Grammar {
         for (var clause : allClauses) {
             clause.addAsSeedParentClause();
         }
+
+        // Index terminals by the characters they can start with (this depends upon seed parents being set)
+        var terminals = getTerminals();
+        maxTerminalLen = getMaxTerminalLen(terminals);
+        firstCharDispatch = new FirstCharDispatch(terminals);
+        var charSeqs = terminals.stream().filter(clause -> clause instanceof CharSeq).map(clause -> (CharSeq) clause)
+                .collect(Collectors.toList());
+        charSeqAutomaton = new CharSeqAutomaton(charSeqs);
+        utf8CharSeqAutomaton = charSeqs.stream().allMatch(charSeq -> charSeq.isASCII) ? charSeqAutomaton
+                : new CharSeqAutomaton(charSeqs, /* utf8 = */ true);
+
+        // The clauses must not be modified after this point (see the class comment)
+        for (var clause : allClauses) {
+            clause.freeze();
+        }
     }
 
-    // -------------------------------------------------------------------------------------------------------------
+    /**
+     * Construct a grammar from rules and clauses that have already been through all the steps of
+     * {@link #Grammar(List)}, i.e. from a snapshot (see {@link GrammarSnapshot}).
+     */
+    Grammar(List<Rule> allRules, List<Clause> allClauses) {
+        this.allRules = List.copyOf(allRules);
+        this.allClauses = List.copyOf(allClauses);
+        var ruleNameWithPrecedenceToRuleMap = new HashMap<String, Rule>();
+        for (var rule : allRules) {
+            if (ruleNameWithPrecedenceToRuleMap.put(rule.ruleName, rule) != null) {
+                throw new IllegalArgumentException("Duplicate rule name " + rule.ruleName);
+            }
+        }
+        ruleNameWithPrecedenceToRule = Map.copyOf(ruleNameWithPrecedenceToRuleMap);
+        var terminals = getTerminals();
+        maxTerminalLen = getMaxTerminalLen(terminals);
+        firstCharDispatch = new FirstCharDispatch(terminals);
+        var charSeqs = terminals.stream().filter(clause -> clause instanceof CharSeq).map(clause -> (CharSeq) clause)
+                .collect(Collectors.toList());
+        charSeqAutomaton = new CharSeqAutomaton(charSeqs);
+        utf8CharSeqAutomaton = charSeqs.stream().allMatch(charSeq -> charSeq.isASCII) ? charSeqAutomaton
+                : new CharSeqAutomaton(charSeqs, /* utf8 = */ true);
+        for (var clause : this.allClauses) {
+            clause.freeze();
+        }
+    }
+
+    /**
+     * Write a snapshot of this grammar, which can be read by {@link #readSnapshot(InputStream)} much faster than
+     * the grammar can be built from its rules.
+     */
+    public void writeSnapshot(OutputStream outputStream) throws IOException {
+        GrammarSnapshot.write(this, outputStream);
+    }
 
-    /** Main parsing method. */
-    public MemoTable parse(String input) {
-        var priorityQueue = new PriorityQueue<Clause>((c1, c2) -> c1.clauseIdx - c2.clauseIdx);
+    /** Read a grammar snapshot written by {@link #writeSnapshot(OutputStream)}. */
+    public static Grammar readSnapshot(InputStream inputStream) throws IOException {
+        return GrammarSnapshot.read(inputStream);
+    }
 
-        var memoTable = new MemoTable(this, input);
+    /**
+     * Compile a {@link ClauseMatcher} that is specialized for this grammar, for use as
+     * {@link ParseOptions#clauseMatcher} (or set {@link ParseOptions#compileGrammar} to compile the grammar once, on
+     * first use). This generates Java source and compiles it with the system Java compiler, so takes some time. If
+     * no Java compiler is available, or compilation fails, a matcher that calls
+     * {@link Clause#match(MemoTable, int, CharSequence)} is returned (see {@link ClauseMatcher#isCompiled()}).
+     */
+    public ClauseMatcher compile() {
+        try {
+            return GrammarCompiler.compile(this);
+        } catch (LinkageError e) {
+            // The java.compiler module is not present
+            return new ClauseMatcher.Interpreter(this);
+        }
+    }
 
-        var terminals = allClauses.stream().filter(clause -> clause instanceof Terminal
+    /** Compile this grammar the first time this is called, for {@link ParseOptions#compileGrammar}. */
+    private synchronized ClauseMatcher getCompiledClauseMatcher() {
+        if (compiledClauseMatcher == null) {
+            compiledClauseMatcher = compile();
+        }
+        return compiledClauseMatcher;
+    }
+
+    /** Get the length of the longest terminal match (at least 1). */
+    private static int getMaxTerminalLen(List<Clause> terminals) {
+        return Math.max(1, terminals.stream()
+                .mapToInt(clause -> clause instanceof CharSeq ? ((CharSeq) clause).str.length()
+                        : clause instanceof CharSeqTrie ? ((CharSeqTrie) clause).maxStrLen : 1)
+                .max().orElse(1));
+    }
+
+    /** Get the terminals that need to be matched at each start position. */
+    private List<Clause> getTerminals() {
+        return allClauses.stream().filter(clause -> clause instanceof Terminal
                 // Don't match Nothing everywhere -- it always matches
                 && !(clause instanceof Nothing)) //
                 .collect(Collectors.toList());
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Main parsing method. The input is usually a {@link String}, but can be any {@link CharSequence}, e.g. a
+     * {@link Utf8Input}, which parses UTF-8 bytes without decoding them first.
+     */
+    public MemoTable parse(CharSequence input) {
+        return parse(input, new ParseOptions());
+    }
+
+    /** Main parsing method, using the given {@link ParseOptions}. */
+    public MemoTable parse(CharSequence input, ParseOptions parseOptions) {
+        return parse(input, parseOptions, new ParseContext(this));
+    }
+
+    /**
+     * Main parsing method, reusing the data structures of the given {@link ParseContext}. The returned
+     * {@link MemoTable} is only valid until the context is used again.
+     */
+    public MemoTable parse(CharSequence input, ParseOptions parseOptions, ParseContext parseContext) {
+        if (parseContext.grammar != this) {
+            throw new IllegalArgumentException("ParseContext was created for a different grammar");
+        }
+        var isString = input instanceof String;
+        if (parseOptions.incrementalReparsing && !isString) {
+            throw new IllegalArgumentException("Incremental reparsing is only supported for String input");
+        }
+        // The compiled ClauseMatcher only matches String input
+        var clauseMatcher = parseOptions.incrementalReparsing || !isString ? null
+                : parseOptions.clauseMatcher != null ? parseOptions.clauseMatcher
+                        : parseOptions.compileGrammar ? getCompiledClauseMatcher() : null;
+        var inputStr = isString ? (String) input : null;
+        if (clauseMatcher != null && clauseMatcher.grammar != this) {
+            throw new IllegalArgumentException("ClauseMatcher was created for a different grammar");
+        }
+        var priorityQueue = parseContext.getPriorityQueue();
+        var memoTable = new MemoTable(this, input, parseOptions,
+                parseContext.getMemoStorage(parseOptions, input.length()));
+
+        // Optionally match all terminals in parallel before the main parsing loop
+        var terminalMatches = parseOptions.parallelTerminalMatching
+                ? new TerminalMatches(getTerminals(), memoTable, input,
+                        parseOptions.forkJoinPool != null ? parseOptions.forkJoinPool : ForkJoinPool.commonPool())
+                : null;
+
+        // Otherwise find all CharSeq matches in a single pass over the input
+        var charSeqMatches = terminalMatches == null
+                ? (input instanceof Utf8Input ? utf8CharSeqAutomaton : charSeqAutomaton).findMatches(input)
+                : null;
 
         // Main parsing loop
         for (int startPos = input.length() - 1; startPos >= 0; --startPos) {
@@ -176,18 +380,182 @@ public class Grammar {
                 System.out.println("=============== POSITION: " + startPos + " CHARACTER:["
                         + StringUtils.escapeQuotedChar(input.charAt(startPos)) + "] ===============");
             }
-            priorityQueue.addAll(terminals);
+            // Only schedule the terminals that matched, or that can start with the current character. Terminals
+            // that can't match would only have scheduled their seed parents that can match zero characters, so
+            // schedule those too.
+            if (terminalMatches != null) {
+                terminalMatches.addMatchedTerminals(startPos, priorityQueue);
+            } else {
+                charSeqMatches.addMatchedTerminals(startPos, priorityQueue);
+                priorityQueue.addAll(firstCharDispatch.getTerminals(input.charAt(startPos)));
+            }
+            priorityQueue.addAll(firstCharDispatch.getZeroLengthSeedParentClauses());
+            memoTable.startMatchingAt(startPos);
             while (!priorityQueue.isEmpty()) {
                 // Remove a clause from the priority queue (ordered from terminals to toplevel clauses)
                 var clause = priorityQueue.remove();
-                var memoKey = new MemoKey(clause, startPos);
-                var match = clause.match(memoTable, memoKey, input);
-                memoTable.addMatch(memoKey, match, priorityQueue);
+                var match = terminalMatches != null && clause instanceof Terminal
+                        ? terminalMatches.get(clause, startPos)
+                        : clause instanceof CharSeq ? charSeqMatches.get(clause, startPos)
+                                : clauseMatcher != null ? clauseMatcher.match(clause, memoTable, startPos, inputStr)
+                                        : clause.match(memoTable, startPos, input);
+                memoTable.addMatch(clause, startPos, match, priorityQueue);
             }
         }
         return memoTable;
     }
 
+    /**
+     * Parse each of the inputs in parallel using the given {@link Executor}, returning the memo tables in the same
+     * order as the inputs. Inputs are read from the stream only as results are consumed, so that at most a few
+     * parses per thread are in progress at any time (see {@link ParseService}).
+     */
+    public Stream<MemoTable> parseAll(Stream<? extends CharSequence> inputs, Executor executor) {
+        return new ParseService(this, new ParseOptions(), executor).parseAll(inputs, memoTable -> memoTable);
+    }
+
+    /**
+     * Update a {@link MemoTable} after one or more calls to {@link MemoTable#applyEdit(int, int, String)}, by
+     * matching clauses again at only the start positions that were invalidated by the edits.
+     */
+    public void reparse(MemoTable memoTable) {
+        var priorityQueue = new ClauseQueue(allClauses);
+        var input = memoTable.input;
+        var dirtyStartPositions = memoTable.dirtyStartPositions;
+        for (int startPos = dirtyStartPositions.previousSetBit(input.length() - 1); startPos >= 0; //
+                startPos = dirtyStartPositions.previousSetBit(startPos - 1)) {
+            if (DEBUG) {
+                System.out.println("=============== REPARSING POSITION: " + startPos + " CHARACTER:["
+                        + StringUtils.escapeQuotedChar(input.charAt(startPos)) + "] ===============");
+            }
+            var clausesToRematch = memoTable.clausesToRematch.get(startPos);
+            if (clausesToRematch != null) {
+                // Only some clauses were invalidated at this start position. Any other clauses whose matches
+                // change as a result will be scheduled as seed parents.
+                priorityQueue.addAll(clausesToRematch);
+            } else {
+                var c = input.charAt(startPos);
+                priorityQueue.addAll(firstCharDispatch.getTerminals(c));
+                priorityQueue.addAll(firstCharDispatch.getCharSeqs(c));
+                priorityQueue.addAll(firstCharDispatch.getZeroLengthSeedParentClauses());
+            }
+            memoTable.startMatchingAt(startPos);
+            while (!priorityQueue.isEmpty()) {
+                var clause = priorityQueue.remove();
+                var match = clause.match(memoTable, startPos, input);
+                memoTable.addMatch(clause, startPos, match, priorityQueue);
+            }
+        }
+        dirtyStartPositions.clear();
+        memoTable.clausesToRematch.clear();
+    }
+
+    /**
+     * Parse input from a {@link Reader} one window at a time, so that memory usage is bounded by the window size
+     * rather than the input size.
+     * 
+     * <p>
+     * Each window is parsed separately, and the nonoverlapping matches of the synchronization rule (e.g. a rule
+     * that matches a single statement or line) are passed to the handler, in order. Since the last match in a
+     * window may be cut short by the end of the window, it is not passed to the handler; instead, the window is
+     * advanced to start at the beginning of that match, and more input is read. Input that is not spanned by any
+     * match of the synchronization rule is skipped. The match of the synchronization rule at a given position
+     * must not depend upon the input after the start of the following match.
+     * 
+     * <p>
+     * If the only match of the synchronization rule in a window starts at the beginning of the window, and may be
+     * incomplete, the window size is doubled until the match fits, up to {@link #MAX_STREAMING_WINDOW_GROWTH}
+     * times windowSize. If the match is still the only match in the largest window, it is passed to the handler
+     * as it is, even though it may have been cut short. If a window does not contain any match of the
+     * synchronization rule, all but the last few characters of the window (which may start a match that is cut
+     * short by the end of the window) are skipped, and more input is read. Memory usage is therefore bounded by
+     * the maximum window size, even if the synchronization rule never matches.
+     */
+    public void parseStreaming(Reader reader, String syncRuleName, int windowSize, ParseOptions parseOptions,
+            StreamingMatchHandler matchHandler) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        var syncClause = getRule(syncRuleName).labeledClause.clause;
+        var maxWindowSize = (int) Math.min(MAX_ARRAY_SIZE, (long) windowSize * MAX_STREAMING_WINDOW_GROWTH);
+        // The number of chars kept at the end of a window without any complete match
+        var tailLen = Math.min(maxTerminalLen, windowSize / 2);
+        var window = new StringBuilder();
+        var readBuf = new char[8192];
+        long windowStartPos = 0;
+        var currWindowSize = windowSize;
+        var eof = false;
+        while (true) {
+            // Fill the window
+            while (!eof && window.length() < currWindowSize) {
+                var numRead = reader.read(readBuf, 0, Math.min(readBuf.length, currWindowSize - window.length()));
+                if (numRead < 0) {
+                    eof = true;
+                } else {
+                    window.append(readBuf, 0, numRead);
+                }
+            }
+            if (window.length() == 0) {
+                break;
+            }
+
+            // Parse the window, and find the matches of the synchronization rule
+            var memoTable = parse(window.toString(), parseOptions);
+            var syncMatches = memoTable.getNonOverlappingMatches(syncClause);
+
+            // Unless the end of the input has been reached, the last match may be incomplete
+            var numCompleteMatches = eof ? syncMatches.size() : syncMatches.size() - 1;
+            for (int i = 0; i < numCompleteMatches; i++) {
+                matchHandler.handleMatch(windowStartPos, memoTable, syncMatches.get(i));
+            }
+            if (eof) {
+                break;
+            }
+
+            // Move the start of the window to the start of the last (possibly incomplete) match
+            var nextWindowStart = syncMatches.isEmpty() ? 0
+                    : syncMatches.get(syncMatches.size() - 1).memoKey.startPos;
+            if (nextWindowStart == 0 && !syncMatches.isEmpty()) {
+                // The only match starts at the beginning of the window, and may be incomplete
+                if (currWindowSize < maxWindowSize) {
+                    // Grow the window
+                    currWindowSize = (int) Math.min(maxWindowSize, (long) currWindowSize * 2);
+                    continue;
+                }
+                // The window can't grow any further -- pass the match to the handler as it is
+                var match = syncMatches.get(0);
+                matchHandler.handleMatch(windowStartPos, memoTable, match);
+                nextWindowStart = match.len;
+            }
+            if (nextWindowStart == 0) {
+                // There is no match in the window (or only a zero-length match) -- skip the window, except for
+                // its tail
+                var skipLen = window.length() - tailLen;
+                window.delete(0, skipLen);
+                windowStartPos += skipLen;
+                currWindowSize = windowSize;
+            } else {
+                window.delete(0, nextWindowStart);
+                windowStartPos += nextWindowStart;
+                currWindowSize = windowSize;
+            }
+        }
+    }
+
+    /**
+     * Parse a {@link CharSequence} one window at a time, without copying the whole input (see
+     * {@link #parseStreaming(Reader, String, int, ParseOptions, StreamingMatchHandler)}).
+     */
+    public void parseStreaming(CharSequence input, String syncRuleName, int windowSize, ParseOptions parseOptions,
+            StreamingMatchHandler matchHandler) {
+        try {
+            parseStreaming(new CharSequenceReader(input), syncRuleName, windowSize, parseOptions, matchHandler);
+        } catch (IOException e) {
+            // Should not happen
+            throw new RuntimeException(e);
+        }
+    }
+
     // -------------------------------------------------------------------------------------------------------------
 
     /** Get a rule by name. */
@@ -0,0 +1,484 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.grammar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import pikaparser.clause.Clause;
+import pikaparser.clause.nonterminal.First;
+import pikaparser.clause.nonterminal.FollowedBy;
+import pikaparser.clause.nonterminal.NotFollowedBy;
+import pikaparser.clause.nonterminal.OneOrMore;
+import pikaparser.clause.nonterminal.Seq;
+import pikaparser.clause.terminal.CharSeq;
+import pikaparser.clause.terminal.CharSet;
+
+/**
+ * Generates the Java source of a {@link ClauseMatcher} that is specialized for a grammar, and compiles it
+ * in-process with {@link javax.tools.JavaCompiler}.
+ * 
+ * <p>
+ * The generated class has one method per nonterminal clause (and per {@link CharSet} terminal), reached through a
+ * switch on {@link Clause#getClauseIdx()} rather than through a megamorphic virtual call. The subclauses of
+ * {@link Seq} and {@link First} clauses are unrolled, and {@link CharSet} and {@link CharSeq} subclauses are
+ * matched by checking the input directly rather than by looking them up in the memo table. (This gives the same
+ * result, since every terminal that can match at a start position is matched there.) Clauses that are not
+ * specialized, e.g. {@link pikaparser.clause.terminal.CharSeqTrie}, are matched by calling
+ * {@link Clause#match(pikaparser.memotable.MemoTable, int, CharSequence)}.
+ */
+class GrammarCompiler {
+    /** The name of the generated class. */
+    private static final String CLASS_NAME = "pikaparser.grammar.generated.CompiledClauseMatcher";
+
+    /**
+     * The number of clauses per dispatch method (so that dispatch methods stay under the JIT's limit on the size
+     * of the methods that it compiles).
+     */
+    private static final int CLAUSES_PER_DISPATCH_METHOD = 256;
+
+    /** The number of Base64 chars of an embedded grammar snapshot per line of generated source. */
+    private static final int SNAPSHOT_LINE_LEN = 100;
+
+    /** The number of Base64 chars of an embedded grammar snapshot per string constant. */
+    private static final int SNAPSHOT_CHUNK_LEN = 60000;
+
+    /** The maximum number of char ranges of a {@link CharSet} that are checked inline. */
+    private static final int MAX_INLINE_CHAR_RANGES = 8;
+
+    /**
+     * Compile a {@link ClauseMatcher} for the grammar, or return a matcher that falls back to calling
+     * {@link Clause#match(pikaparser.memotable.MemoTable, int, CharSequence)} if no Java compiler is available
+     * (e.g. if running on a JRE) or if compilation fails.
+     */
+    static ClauseMatcher compile(Grammar grammar) {
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            if (Grammar.DEBUG) {
+                System.out.println("No Java compiler is available, so grammar will not be compiled");
+            }
+            return new ClauseMatcher.Interpreter(grammar);
+        }
+        try {
+            var source = generateSource(grammar, CLASS_NAME, /* snapshot = */ null);
+
+            // Compile the source in memory, against the classpath entry that contains the pika parser classes
+            var classBytes = new HashMap<String, ByteArrayOutputStream>();
+            var diagnostics = new DiagnosticCollector<JavaFileObject>();
+            var standardFileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+            boolean compiled;
+            try (var fileManager = new ForwardingJavaFileManager<JavaFileManager>(standardFileManager) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind,
+                        FileObject sibling) {
+                    var uri = URI.create("mem:///" + className.replace('.', '/') + kind.extension);
+                    return new SimpleJavaFileObject(uri, kind) {
+                        @Override
+                        public OutputStream openOutputStream() {
+                            var outputStream = new ByteArrayOutputStream();
+                            classBytes.put(className, outputStream);
+                            return outputStream;
+                        }
+                    };
+                }
+            }) {
+                var sourceFile = new SimpleJavaFileObject(
+                        URI.create("string:///" + CLASS_NAME.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE) {
+                    @Override
+                    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                        return source;
+                    }
+                };
+                var classPath = Paths.get(Grammar.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                        .toString();
+                compiled = compiler.getTask(/* out = */ null, fileManager, diagnostics,
+                        List.of("-classpath", classPath, "-proc:none", "-g:none"), /* classes = */ null,
+                        List.of(sourceFile)).call();
+            }
+            if (!compiled) {
+                if (Grammar.DEBUG) {
+                    System.out.println("Could not compile grammar: " + diagnostics.getDiagnostics());
+                }
+                return new ClauseMatcher.Interpreter(grammar);
+            }
+
+            // Load the compiled class
+            var classLoader = new ClassLoader(Grammar.class.getClassLoader()) {
+                @Override
+                protected Class<?> findClass(String name) throws ClassNotFoundException {
+                    var bytes = classBytes.get(name);
+                    if (bytes == null) {
+                        throw new ClassNotFoundException(name);
+                    }
+                    return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+                }
+            };
+            return (ClauseMatcher) classLoader.loadClass(CLASS_NAME).getConstructor(Grammar.class)
+                    .newInstance(grammar);
+        } catch (Exception e) {
+            if (Grammar.DEBUG) {
+                System.out.println("Could not compile grammar: " + e);
+            }
+            return new ClauseMatcher.Interpreter(grammar);
+        }
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Return true if a method is generated for the clause. */
+    private static boolean isSpecialized(Clause clause) {
+        return clause instanceof Seq || clause instanceof First || clause instanceof OneOrMore
+                || clause instanceof FollowedBy || clause instanceof NotFollowedBy || clause instanceof CharSet;
+    }
+
+    /** Return true if the terminal can be matched by checking the input directly. */
+    private static boolean isInlineTerminal(Clause clause) {
+        return clause instanceof CharSet || clause instanceof CharSeq && !((CharSeq) clause).str.isEmpty();
+    }
+
+    /**
+     * Generate the Java source of the {@link ClauseMatcher}. If snapshot is non-null, the snapshot is embedded in
+     * the class, which then also has static fields holding the grammar read from the snapshot and a matcher for
+     * it, so that the class can be used without building the grammar (see {@link ParserGenerator}).
+     */
+    static String generateSource(Grammar grammar, String className, byte[] snapshot) {
+        var lastDotIdx = className.lastIndexOf('.');
+        var simpleClassName = className.substring(lastDotIdx + 1);
+        var buf = new StringBuilder();
+        if (lastDotIdx >= 0) {
+            buf.append("package ").append(className.substring(0, lastDotIdx)).append(";\n\n");
+        }
+        if (snapshot != null) {
+            buf.append("import java.io.ByteArrayInputStream;\n");
+            buf.append("import java.io.IOException;\n");
+            buf.append("import java.io.UncheckedIOException;\n");
+            buf.append("import java.util.Base64;\n\n");
+        }
+        buf.append("import pikaparser.clause.Clause;\n");
+        buf.append("import pikaparser.clause.terminal.Terminal;\n");
+        buf.append("import pikaparser.grammar.ClauseMatcher;\n");
+        buf.append("import pikaparser.grammar.Grammar;\n");
+        if (snapshot != null) {
+            buf.append("import pikaparser.grammar.ParseOptions;\n");
+        }
+        buf.append("import pikaparser.memotable.Match;\n");
+        buf.append("import pikaparser.memotable.MemoKey;\n");
+        buf.append("import pikaparser.memotable.MemoTable;\n\n");
+        if (snapshot != null) {
+            buf.append("/** Generated by pikaparser.grammar.ParserGenerator -- do not edit. */\n");
+        }
+        buf.append("public final class ").append(simpleClassName).append(" extends ClauseMatcher {\n");
+        if (snapshot != null) {
+            generateSnapshotFields(simpleClassName, snapshot, buf);
+        }
+        buf.append("    private final Clause[] c;\n\n");
+        buf.append("    public ").append(simpleClassName).append("(Grammar grammar) {\n");
+        buf.append("        super(grammar);\n");
+        buf.append("        c = grammar.allClauses.toArray(new Clause[0]);\n");
+        buf.append("    }\n\n");
+
+        // Dispatch on clauseIdx, in chunks of clauses
+        var numClauses = grammar.allClauses.size();
+        var numDispatchMethods = (numClauses + CLAUSES_PER_DISPATCH_METHOD - 1) / CLAUSES_PER_DISPATCH_METHOD;
+        buf.append("    @Override\n");
+        buf.append("    public Match match(Clause clause, MemoTable t, int p, String in) {\n");
+        buf.append("        int idx = clause.getClauseIdx();\n");
+        buf.append("        switch (idx / ").append(CLAUSES_PER_DISPATCH_METHOD).append(") {\n");
+        for (int i = 0; i < numDispatchMethods; i++) {
+            buf.append("        case ").append(i).append(": return d").append(i).append("(clause, idx, t, p, in);\n");
+        }
+        buf.append("        default: return clause.match(t, p, in);\n");
+        buf.append("        }\n");
+        buf.append("    }\n");
+        for (int i = 0; i < numDispatchMethods; i++) {
+            buf.append("\n    private Match d").append(i)
+                    .append("(Clause clause, int idx, MemoTable t, int p, String in) {\n");
+            buf.append("        switch (idx) {\n");
+            for (int clauseIdx = i * CLAUSES_PER_DISPATCH_METHOD; clauseIdx < Math.min(numClauses,
+                    (i + 1) * CLAUSES_PER_DISPATCH_METHOD); clauseIdx++) {
+                if (isSpecialized(grammar.allClauses.get(clauseIdx))) {
+                    buf.append("        case ").append(clauseIdx).append(": return m").append(clauseIdx)
+                            .append("(t, p, in);\n");
+                }
+            }
+            buf.append("        default: return clause.match(t, p, in);\n");
+            buf.append("        }\n");
+            buf.append("    }\n");
+        }
+
+        // Generate a method for each specialized clause
+        for (var clause : grammar.allClauses) {
+            if (isSpecialized(clause)) {
+                // Double any backslashes, so that they can't start a unicode escape
+                buf.append("\n    // ").append(clause.toString().replace("\\", "\\\\").replace('\n', ' ')
+                        .replace('\r', ' ')).append("\n");
+                buf.append("    private Match m").append(clause.getClauseIdx())
+                        .append("(MemoTable t, int p, String in) {\n");
+                generateMethodBody(clause, buf);
+                buf.append("    }\n");
+            }
+            if (clause instanceof CharSet) {
+                buf.append("\n    private boolean s").append(clause.getClauseIdx()).append("(char ch) {\n");
+                buf.append("        return ").append(charSetCondition((CharSet) clause, "ch")).append(";\n");
+                buf.append("    }\n");
+            }
+        }
+        buf.append("}\n");
+        return buf.toString();
+    }
+
+    /**
+     * Generate the static fields of a class that embeds a grammar snapshot, and a method that parses input with
+     * the grammar. The snapshot is Base64-encoded and split into chunks, since a string constant in a class file
+     * can be at most 65535 bytes long.
+     */
+    private static void generateSnapshotFields(String simpleClassName, byte[] snapshot, StringBuilder buf) {
+        var encoded = Base64.getEncoder().encodeToString(snapshot);
+        buf.append("    private static final String[] SNAPSHOT = {");
+        for (int i = 0; i < encoded.length(); i += SNAPSHOT_LINE_LEN) {
+            buf.append(i == 0 ? "\n" : i % SNAPSHOT_CHUNK_LEN == 0 ? ",\n" : " +\n");
+            buf.append("            \"").append(encoded, i, Math.min(encoded.length(), i + SNAPSHOT_LINE_LEN))
+                    .append('"');
+        }
+        buf.append(" };\n\n");
+        buf.append("    /** The grammar. */\n");
+        buf.append("    public static final Grammar GRAMMAR;\n\n");
+        buf.append("    /** The matcher for {@link #GRAMMAR}, for use as {@link ParseOptions#clauseMatcher}. */\n");
+        buf.append("    public static final ").append(simpleClassName).append(" MATCHER;\n\n");
+        buf.append("    static {\n");
+        buf.append("        try {\n");
+        buf.append("            byte[] snapshot = Base64.getDecoder().decode(String.join(\"\", SNAPSHOT));\n");
+        buf.append("            GRAMMAR = Grammar.readSnapshot(new ByteArrayInputStream(snapshot));\n");
+        buf.append("        } catch (IOException e) {\n");
+        buf.append("            throw new UncheckedIOException(e);\n");
+        buf.append("        }\n");
+        buf.append("        MATCHER = new ").append(simpleClassName).append("(GRAMMAR);\n");
+        buf.append("    }\n\n");
+        buf.append("    /** Parse the input with {@link #GRAMMAR}, using {@link #MATCHER}. */\n");
+        buf.append("    public static MemoTable parse(String input) {\n");
+        buf.append("        return parse(input, new ParseOptions());\n");
+        buf.append("    }\n\n");
+        buf.append("    /** Parse the input with {@link #GRAMMAR}, using {@link #MATCHER} and the given options. */\n");
+        buf.append("    public static MemoTable parse(String input, ParseOptions parseOptions) {\n");
+        buf.append("        parseOptions.clauseMatcher = MATCHER;\n");
+        buf.append("        return GRAMMAR.parse(input, parseOptions);\n");
+        buf.append("    }\n\n");
+    }
+
+    /** Generate the body of the method that matches a clause at start position p. */
+    private static void generateMethodBody(Clause clause, StringBuilder buf) {
+        var key = "new MemoKey(c[" + clause.getClauseIdx() + "], p)";
+        var subClauses = clause.labeledSubClauses;
+        if (clause instanceof CharSet) {
+            buf.append("        return ").append(terminalCondition(clause, "p")).append(" ? new Match(").append(key)
+                    .append(", 1) : null;\n");
+
+        } else if (clause instanceof Seq) {
+            buf.append("        int q = p;\n");
+            var subClauseMatches = new ArrayList<String>();
+            for (int i = 0; i < subClauses.length; i++) {
+                var subClause = subClauses[i].clause;
+                if (isInlineTerminal(subClause)) {
+                    // Only record the start position, and create the match if subclause matches are needed
+                    buf.append("        int q").append(i).append(" = q;\n");
+                    buf.append("        if (!(").append(terminalCondition(subClause, "q")).append(")) {\n");
+                    buf.append("            return null;\n");
+                    buf.append("        }\n");
+                    buf.append("        q += ").append(terminalLen(subClause)).append(";\n");
+                    subClauseMatches.add("new Match(new MemoKey(c[" + subClause.getClauseIdx() + "], q" + i + "), "
+                            + terminalLen(subClause) + ")");
+                } else {
+                    buf.append("        Match m").append(i).append(" = t.lookUpBestMatch(c[")
+                            .append(subClause.getClauseIdx()).append("], q);\n");
+                    buf.append("        if (m").append(i).append(" == null) {\n");
+                    buf.append("            return null;\n");
+                    buf.append("        }\n");
+                    buf.append("        q += m").append(i).append(".len;\n");
+                    subClauseMatches.add("m" + i);
+                }
+            }
+            buf.append("        return new Match(").append(key).append(", q - p, t.recognizeOnly")
+                    .append(" ? Match.SUBCLAUSE_MATCHES_NOT_RECORDED : new Match[] { ")
+                    .append(String.join(", ", subClauseMatches)).append(" });\n");
+
+        } else if (clause instanceof First) {
+            for (int i = 0; i < subClauses.length; i++) {
+                var subClause = subClauses[i].clause;
+                if (isInlineTerminal(subClause)) {
+                    var len = terminalLen(subClause);
+                    buf.append("        if (").append(terminalCondition(subClause, "p")).append(") {\n");
+                    buf.append("            return new Match(").append(key).append(", ").append(len).append(", ")
+                            .append(i).append(", t.recognizeOnly ? Match.SUBCLAUSE_MATCHES_NOT_RECORDED")
+                            .append(" : new Match[] { new Match(new MemoKey(c[").append(subClause.getClauseIdx())
+                            .append("], p), ").append(len).append(") });\n");
+                    buf.append("        }\n");
+                } else {
+                    buf.append("        Match m").append(i).append(" = t.lookUpBestMatch(c[")
+                            .append(subClause.getClauseIdx()).append("], p);\n");
+                    buf.append("        if (m").append(i).append(" != null) {\n");
+                    buf.append("            return new Match(").append(key).append(", m").append(i)
+                            .append(".len, ").append(i)
+                            .append(", t.recognizeOnly ? Match.SUBCLAUSE_MATCHES_NOT_RECORDED : new Match[] { m")
+                            .append(i).append(" });\n");
+                    buf.append("        }\n");
+                }
+            }
+            buf.append("        return null;\n");
+
+        } else if (clause instanceof OneOrMore) {
+            var subClause = subClauses[0].clause;
+            if (isInlineTerminal(subClause)) {
+                buf.append("        if (!(").append(terminalCondition(subClause, "p")).append(")) {\n");
+                buf.append("            return null;\n");
+                buf.append("        }\n");
+                buf.append("        int len = ").append(terminalLen(subClause)).append(";\n");
+            } else {
+                buf.append("        Match m = t.lookUpBestMatch(c[").append(subClause.getClauseIdx())
+                        .append("], p);\n");
+                buf.append("        if (m == null) {\n");
+                buf.append("            return null;\n");
+                buf.append("        }\n");
+                buf.append("        int len = m.len;\n");
+            }
+            buf.append("        Match tail = t.lookUpBestMatch(c[").append(clause.getClauseIdx())
+                    .append("], p + len);\n");
+            buf.append("        if (t.recognizeOnly) {\n");
+            buf.append("            return new Match(").append(key)
+                    .append(", tail == null ? len : len + tail.len, Match.SUBCLAUSE_MATCHES_NOT_RECORDED);\n");
+            buf.append("        }\n");
+            if (isInlineTerminal(subClause)) {
+                buf.append("        Match m = new Match(new MemoKey(c[").append(subClause.getClauseIdx())
+                        .append("], p), len);\n");
+            }
+            buf.append("        return tail == null ? new Match(").append(key).append(", len, new Match[] { m })\n");
+            buf.append("                : new Match(").append(key)
+                    .append(", len + tail.len, new Match[] { m, tail });\n");
+
+        } else {
+            // FollowedBy or NotFollowedBy
+            var subClause = subClauses[0].clause;
+            var matched = isInlineTerminal(subClause) ? terminalCondition(subClause, "p")
+                    : "t.lookUpBestMatch(c[" + subClause.getClauseIdx() + "], p) != null";
+            buf.append("        return ").append(clause instanceof NotFollowedBy ? "!(" + matched + ")" : matched)
+                    .append(" ? new Match(").append(key).append(") : null;\n");
+        }
+    }
+
+    /** Get the length of a match of a terminal for which {@link #isInlineTerminal(Clause)} is true. */
+    private static int terminalLen(Clause terminal) {
+        return terminal instanceof CharSeq ? ((CharSeq) terminal).str.length() : 1;
+    }
+
+    /** Get an expression that is true if the terminal matches the input at the given position. */
+    private static String terminalCondition(Clause terminal, String pos) {
+        if (terminal instanceof CharSeq) {
+            var charSeq = (CharSeq) terminal;
+            return charSeq.ignoreCase
+                    ? "in.regionMatches(true, " + pos + ", " + stringLiteral(charSeq.str) + ", 0, "
+                            + charSeq.str.length() + ")"
+                    : "in.startsWith(" + stringLiteral(charSeq.str) + ", " + pos + ")";
+        }
+        return pos + " < in.length() && s" + terminal.getClauseIdx() + "(in.charAt(" + pos + "))";
+    }
+
+    /** Get the number of char ranges that need to be checked to match a {@link CharSet}. */
+    private static int numCharRanges(CharSet charSet) {
+        var charRanges = charSet.getCharRanges();
+        var invertedCharRanges = charSet.getInvertedCharRanges();
+        return (charRanges == null ? 0 : charRanges.length / 2)
+                + (invertedCharRanges == null ? 0 : Math.max(1, invertedCharRanges.length / 2));
+    }
+
+    /** Get an expression that is true if the char expression is matched by the {@link CharSet}. */
+    private static String charSetCondition(CharSet charSet, String ch) {
+        if (numCharRanges(charSet) > MAX_INLINE_CHAR_RANGES) {
+            return "((Terminal) c[" + charSet.getClauseIdx() + "]).canStartWith(" + ch + ")";
+        }
+        var conditions = new ArrayList<String>();
+        var charRanges = charSet.getCharRanges();
+        if (charRanges != null && charRanges.length > 0) {
+            conditions.add(charRangesCondition(charRanges, ch));
+        }
+        var invertedCharRanges = charSet.getInvertedCharRanges();
+        if (invertedCharRanges != null) {
+            conditions.add(invertedCharRanges.length == 0 ? "true"
+                    : "!(" + charRangesCondition(invertedCharRanges, ch) + ")");
+        }
+        return conditions.isEmpty() ? "false" : String.join(" || ", conditions);
+    }
+
+    /** Get an expression that is true if the char expression is in one of the char ranges. */
+    private static String charRangesCondition(char[] charRanges, String ch) {
+        var conditions = new ArrayList<String>();
+        for (int i = 0; i < charRanges.length; i += 2) {
+            conditions.add(charRanges[i] == charRanges[i + 1] ? ch + " == " + (int) charRanges[i]
+                    : "(" + ch + " >= " + (int) charRanges[i] + " && " + ch + " <= " + (int) charRanges[i + 1]
+                            + ")");
+        }
+        return conditions.size() == 1 ? conditions.get(0) : "(" + String.join(" || ", conditions) + ")";
+    }
+
+    /**
+     * Get a Java string literal. Octal escapes are used for control characters, since unicode escapes of line
+     * terminators are translated before the source is tokenized.
+     */
+    private static String stringLiteral(String str) {
+        var buf = new StringBuilder("\"");
+        for (int i = 0; i < str.length(); i++) {
+            var c = str.charAt(i);
+            if (c == '"' || c == '\\') {
+                buf.append('\\').append(c);
+            } else if (c < 0x20 || c == 0x7f) {
+                buf.append(String.format("\\%03o", (int) c));
+            } else if (c > 0x7f) {
+                buf.append(String.format("\\u%04x", (int) c));
+            } else {
+                buf.append(c);
+            }
+        }
+        return buf.append('"').toString();
+    }
+}
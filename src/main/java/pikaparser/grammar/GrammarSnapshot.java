@@ -0,0 +1,317 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.grammar;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import pikaparser.ast.LabeledClause;
+import pikaparser.clause.Clause;
+import pikaparser.clause.aux.RuleRef;
+import pikaparser.clause.nonterminal.First;
+import pikaparser.clause.nonterminal.FollowedBy;
+import pikaparser.clause.nonterminal.NotFollowedBy;
+import pikaparser.clause.nonterminal.OneOrMore;
+import pikaparser.clause.nonterminal.Seq;
+import pikaparser.clause.terminal.CharSeq;
+import pikaparser.clause.terminal.CharSeqTrie;
+import pikaparser.clause.terminal.CharSet;
+import pikaparser.clause.terminal.Nothing;
+import pikaparser.clause.terminal.Start;
+import pikaparser.clause.terminal.Terminal;
+import pikaparser.grammar.Rule.Associativity;
+
+/**
+ * A compact binary format for a fully built {@link Grammar}, storing each clause in {@link Grammar#allClauses}
+ * order along with its subclauses, AST node labels, seed parent clauses, {@link Clause#canMatchZeroChars()} and
+ * cached toString() value, followed by the rules. Reading a snapshot skips parsing the grammar description,
+ * interning clauses, resolving {@link RuleRef}s, rewriting precedence, sorting clauses and finding seed parents.
+ */
+class GrammarSnapshot {
+    /** The first 4 bytes of a snapshot ("PIKA"). */
+    private static final int MAGIC = 0x50494b41;
+
+    /** The format version, incremented whenever the format changes. */
+    private static final int VERSION = 3;
+
+    private static final byte CHAR_SEQ = 0;
+    private static final byte CHAR_SET = 1;
+    private static final byte NOTHING = 2;
+    private static final byte START = 3;
+    private static final byte SEQ = 4;
+    private static final byte FIRST = 5;
+    private static final byte ONE_OR_MORE = 6;
+    private static final byte FOLLOWED_BY = 7;
+    private static final byte NOT_FOLLOWED_BY = 8;
+    private static final byte CHAR_SEQ_TRIE = 9;
+
+    /** Write a snapshot of the grammar. */
+    static void write(Grammar grammar, OutputStream outputStream) throws IOException {
+        var out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        // Write the clause types and terminal contents, so that clauses can be constructed on reading
+        out.writeInt(grammar.allClauses.size());
+        for (var clause : grammar.allClauses) {
+            if (clause instanceof CharSeq) {
+                out.writeByte(CHAR_SEQ);
+                writeString(((CharSeq) clause).str, out);
+                out.writeBoolean(((CharSeq) clause).ignoreCase);
+            } else if (clause instanceof CharSet) {
+                out.writeByte(CHAR_SET);
+                writeChars(((CharSet) clause).getCharRanges(), out);
+                writeChars(((CharSet) clause).getInvertedCharRanges(), out);
+            } else if (clause instanceof CharSeqTrie) {
+                out.writeByte(CHAR_SEQ_TRIE);
+                var strs = ((CharSeqTrie) clause).strs;
+                out.writeInt(strs.size());
+                for (var str : strs) {
+                    writeString(str, out);
+                }
+            } else if (clause instanceof Nothing) {
+                out.writeByte(NOTHING);
+            } else if (clause instanceof Start) {
+                out.writeByte(START);
+            } else if (clause instanceof Seq) {
+                out.writeByte(SEQ);
+            } else if (clause instanceof First) {
+                out.writeByte(FIRST);
+            } else if (clause instanceof OneOrMore) {
+                out.writeByte(ONE_OR_MORE);
+            } else if (clause instanceof FollowedBy) {
+                out.writeByte(FOLLOWED_BY);
+            } else if (clause instanceof NotFollowedBy) {
+                out.writeByte(NOT_FOLLOWED_BY);
+            } else {
+                throw new IllegalArgumentException("Unknown clause type: " + clause.getClass().getName());
+            }
+            out.writeInt(clause.labeledSubClauses.length);
+        }
+
+        // Write the links between clauses
+        for (var clause : grammar.allClauses) {
+            for (var labeledSubClause : clause.labeledSubClauses) {
+                out.writeInt(labeledSubClause.clause.getClauseIdx());
+                writeString(labeledSubClause.astNodeLabel, out);
+            }
+            out.writeInt(clause.getSeedParentClauses().size());
+            for (var seedParentClause : clause.getSeedParentClauses()) {
+                out.writeInt(seedParentClause.getClauseIdx());
+            }
+            out.writeBoolean(clause.canMatchZeroChars());
+            writeString(clause.toString(), out);
+        }
+
+        // Write the rules
+        var ruleToRuleIdx = new HashMap<Rule, Integer>();
+        out.writeInt(grammar.allRules.size());
+        for (var rule : grammar.allRules) {
+            ruleToRuleIdx.put(rule, ruleToRuleIdx.size());
+            writeString(rule.ruleName, out);
+            out.writeInt(rule.precedence);
+            out.writeInt(rule.associativity == null ? -1 : rule.associativity.ordinal());
+            out.writeInt(rule.labeledClause.clause.getClauseIdx());
+            writeString(rule.labeledClause.astNodeLabel, out);
+        }
+
+        // Write the rules that each clause is registered with (not all of the rules of a clause point to the
+        // clause, since clauses are interned after being registered)
+        for (var clause : grammar.allClauses) {
+            out.writeInt(clause.getRules().size());
+            for (var rule : clause.getRules()) {
+                var ruleIdx = ruleToRuleIdx.get(rule);
+                if (ruleIdx == null) {
+                    throw new IllegalArgumentException("Clause is registered with an unknown rule: " + rule);
+                }
+                out.writeInt(ruleIdx);
+            }
+        }
+        out.flush();
+    }
+
+    /** Read a snapshot of a grammar. */
+    static Grammar read(InputStream inputStream) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a grammar snapshot");
+        }
+        var version = in.readInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported grammar snapshot version: " + version);
+        }
+
+        // Construct the clauses, using placeholders for subclauses, since subclauses may come later in the
+        // topological sort order if there are cycles
+        var numClauses = in.readInt();
+        var allClauses = new ArrayList<Clause>(numClauses);
+        for (int clauseIdx = 0; clauseIdx < numClauses; clauseIdx++) {
+            var type = in.readByte();
+            Clause clause;
+            switch (type) {
+            case CHAR_SEQ:
+                clause = new CharSeq(readString(in), in.readBoolean());
+                break;
+            case CHAR_SET:
+                clause = CharSet.fromCharRanges(readChars(in), readChars(in));
+                break;
+            case CHAR_SEQ_TRIE:
+                var strs = new String[in.readInt()];
+                for (int i = 0; i < strs.length; i++) {
+                    strs[i] = readString(in);
+                }
+                clause = new CharSeqTrie(strs);
+                break;
+            case NOTHING:
+                clause = new Nothing();
+                break;
+            case START:
+                clause = new Start();
+                break;
+            default:
+                var placeholders = new Clause[in.readInt()];
+                for (int i = 0; i < placeholders.length; i++) {
+                    placeholders[i] = new RuleRef("");
+                }
+                clause = type == SEQ ? new Seq(placeholders)
+                        : type == FIRST ? new First(placeholders)
+                                : type == ONE_OR_MORE ? new OneOrMore(placeholders[0])
+                                        : type == FOLLOWED_BY ? new FollowedBy(placeholders[0])
+                                                : type == NOT_FOLLOWED_BY ? new NotFollowedBy(placeholders[0])
+                                                        : null;
+                if (clause == null) {
+                    throw new IllegalArgumentException("Unknown clause type in grammar snapshot: " + type);
+                }
+                break;
+            }
+            if (clause instanceof Terminal && in.readInt() != 0) {
+                throw new IllegalArgumentException("Terminal with subclauses in grammar snapshot");
+            }
+            clause.setClauseIdx(clauseIdx);
+            allClauses.add(clause);
+        }
+
+        // Link the clauses
+        for (var clause : allClauses) {
+            for (int i = 0; i < clause.labeledSubClauses.length; i++) {
+                var subClause = allClauses.get(in.readInt());
+                clause.labeledSubClauses[i] = new LabeledClause(subClause, readString(in));
+            }
+            var numSeedParentClauses = in.readInt();
+            for (int i = 0; i < numSeedParentClauses; i++) {
+                clause.addSeedParentClause(allClauses.get(in.readInt()));
+            }
+            clause.setCanMatchZeroChars(in.readBoolean());
+            clause.setToStringCached(readString(in));
+        }
+
+        // Read the rules
+        var numRules = in.readInt();
+        var allRules = new ArrayList<Rule>(numRules);
+        var associativities = Associativity.values();
+        for (int i = 0; i < numRules; i++) {
+            var ruleName = readString(in);
+            var precedence = in.readInt();
+            var associativityOrdinal = in.readInt();
+            var rule = new Rule(ruleName, precedence,
+                    associativityOrdinal < 0 ? null : associativities[associativityOrdinal],
+                    allClauses.get(in.readInt()));
+            rule.labeledClause.astNodeLabel = readString(in);
+            allRules.add(rule);
+        }
+        for (var clause : allClauses) {
+            var numRulesForClause = in.readInt();
+            for (int i = 0; i < numRulesForClause; i++) {
+                clause.registerRule(allRules.get(in.readInt()));
+            }
+        }
+        return new Grammar(allRules, allClauses);
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Write a nullable string as UTF-16 code units, so that strings containing unpaired surrogates (which can't be
+     * encoded as UTF-8) are written unchanged.
+     */
+    private static void writeString(String str, DataOutputStream out) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(str.length());
+            out.writeChars(str);
+        }
+    }
+
+    /** Read a nullable string written by {@link #writeString(String, DataOutputStream)}. */
+    private static String readString(DataInputStream in) throws IOException {
+        var len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        var chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+
+    /** Write a nullable char array. */
+    private static void writeChars(char[] chars, DataOutputStream out) throws IOException {
+        if (chars == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(chars.length);
+            for (var c : chars) {
+                out.writeChar(c);
+            }
+        }
+    }
+
+    /** Read a nullable char array written by {@link #writeChars(char[], DataOutputStream)}. */
+    private static char[] readChars(DataInputStream in) throws IOException {
+        var len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        var chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = in.readChar();
+        }
+        return chars;
+    }
+}
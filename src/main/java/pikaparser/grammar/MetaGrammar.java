@@ -392,6 +392,14 @@ public class MetaGrammar {
 
     /** Parse a grammar description in an input string, returning a new {@link Grammar} object. */
     public static Grammar parse(String input) {
+        return parse(input, /* optimize = */ false);
+    }
+
+    /**
+     * Parse a grammar description in an input string, returning a new {@link Grammar} object, optimized if
+     * optimize is true (see {@link Grammar#Grammar(List, boolean)}).
+     */
+    public static Grammar parse(String input, boolean optimize) {
         var memoTable = grammar.parse(input);
 
         //        ParserInfo.printParseResult("GRAMMAR", grammar, memoTable, input,
@@ -438,6 +446,6 @@ public class MetaGrammar {
             Rule rule = parseRule(astNode);
             rules.add(rule);
         }
-        return new Grammar(rules);
+        return new Grammar(rules, optimize);
     }
 }
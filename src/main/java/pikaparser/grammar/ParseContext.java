@@ -0,0 +1,104 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.grammar;
+
+import pikaparser.memotable.ClauseQueue;
+import pikaparser.memotable.EditableMemoStorage;
+import pikaparser.memotable.MemoStorage;
+import pikaparser.memotable.MemoTable;
+
+/**
+ * Reusable scratch space for {@link Grammar#parse(String, ParseOptions, ParseContext)}. The priority queue and the
+ * backing arrays of the memo table are kept between parses, sized to the largest input parsed so far, so that
+ * parsing many inputs in turn does not allocate (and garbage collect) a new memo table for every input.
+ * 
+ * <p>
+ * The {@link MemoTable} returned by a parse using a {@link ParseContext} shares the context's memo table storage,
+ * so it is only valid until the next parse using the same context, or until {@link #reset()} or
+ * {@link #release()} is called. A {@link ParseContext} is not thread safe, and should be confined to one thread
+ * (e.g. with a {@link ThreadLocal}).
+ */
+public class ParseContext {
+    /** The grammar that this context is used with. */
+    public final Grammar grammar;
+
+    /** The priority queue, or null if it has not been allocated yet. */
+    private ClauseQueue priorityQueue;
+
+    /** The memo table storage, or null if it has not been allocated yet. */
+    private MemoStorage memoStorage;
+
+    public ParseContext(Grammar grammar) {
+        this.grammar = grammar;
+    }
+
+    /** Get the empty priority queue. */
+    ClauseQueue getPriorityQueue() {
+        if (priorityQueue == null) {
+            priorityQueue = new ClauseQueue(grammar.allClauses);
+        } else {
+            priorityQueue.clear();
+        }
+        return priorityQueue;
+    }
+
+    /**
+     * Get empty memo table storage for an input of the given length. If {@link ParseOptions#incrementalReparsing}
+     * is true, a new {@link EditableMemoStorage} is returned, since the memo table is kept and edited after the
+     * parse.
+     */
+    MemoStorage getMemoStorage(ParseOptions parseOptions, int inputLength) {
+        if (parseOptions.incrementalReparsing) {
+            return new EditableMemoStorage(inputLength);
+        }
+        memoStorage = MemoStorage.createOrReuse(memoStorage, parseOptions.memoStorageStrategy,
+                grammar.allClauses, inputLength, parseOptions.maxDenseMemoStorageBytes);
+        return memoStorage;
+    }
+
+    /**
+     * Remove all matches from the memo table storage, so that they can be garbage collected, while keeping the
+     * backing arrays for the next parse. Invalidates the {@link MemoTable} of the last parse.
+     */
+    public void reset() {
+        if (memoStorage != null) {
+            memoStorage.clear(0);
+        }
+    }
+
+    /**
+     * Discard the backing arrays, e.g. after parsing an unusually large input, so that they can be garbage
+     * collected. They are allocated again by the next parse. Invalidates the {@link MemoTable} of the last parse.
+     */
+    public void release() {
+        priorityQueue = null;
+        memoStorage = null;
+    }
+}
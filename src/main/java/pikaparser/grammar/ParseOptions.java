@@ -0,0 +1,95 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.grammar;
+
+import java.util.concurrent.ForkJoinPool;
+
+import pikaparser.memotable.MemoStorage;
+import pikaparser.memotable.MemoTable;
+
+/** Options for {@link Grammar#parse(String, ParseOptions)}. */
+public class ParseOptions {
+    /** The strategy used to choose how the memo table is stored. */
+    public MemoStorage.Strategy memoStorageStrategy = MemoStorage.Strategy.AUTO;
+
+    /**
+     * The maximum number of bytes that dense memo table storage may use before {@link MemoStorage.Strategy#AUTO}
+     * falls back to sparse storage. Defaults to 1/16th of the maximum heap size.
+     */
+    public long maxDenseMemoStorageBytes = Runtime.getRuntime().maxMemory() / 16;
+
+    /**
+     * If true, match all terminals at every input position before the main parsing loop, splitting the input into
+     * chunks that are matched in parallel.
+     */
+    public boolean parallelTerminalMatching = false;
+
+    /**
+     * The {@link ForkJoinPool} to use if {@link #parallelTerminalMatching} is true, or null to use
+     * {@link ForkJoinPool#commonPool()}.
+     */
+    public ForkJoinPool forkJoinPool;
+
+    /**
+     * If true, record the span of the input examined while matching each clause at each start position, so that
+     * {@link pikaparser.memotable.MemoTable#applyEdit(int, int, String)} only invalidates the matches that depend
+     * on the edited characters. This uses extra memory. If false, editing the input invalidates all matches that
+     * start before the end of the edit. If true, {@link #memoStorageStrategy} must not be
+     * {@link MemoStorage.Strategy#COMPACT}, and is otherwise ignored: the memo table is stored in an
+     * {@link pikaparser.memotable.EditableMemoStorage}, so that an edit does not need to move every memo entry.
+     */
+    public boolean incrementalReparsing = false;
+
+    /**
+     * If true, only record the length of each match (and the index of the matching subclause of each
+     * {@link pikaparser.clause.nonterminal.First} match), not its subclause matches, so that less memory is used.
+     * The memo table can still be used to find out whether the input matched, and to find syntax errors, but parse
+     * trees and ASTs can't be built from it.
+     */
+    public boolean recognizeOnly = false;
+
+    /**
+     * If true, and {@link #clauseMatcher} is null, the grammar is compiled with {@link Grammar#compile()} the first
+     * time it is used with this option, and the compiled matcher is reused for later parses with the same grammar.
+     * Compilation runs the system Java compiler and loads a new class for each grammar, and has not been shown to
+     * make parsing faster, so it is off by default. Ignored in the same cases as {@link #clauseMatcher}.
+     */
+    public boolean compileGrammar = false;
+
+    /**
+     * The {@link ClauseMatcher} used to match clauses in the main parsing loop, e.g. a matcher returned by
+     * {@link Grammar#compile()}, or null to call
+     * {@link pikaparser.clause.Clause#match(MemoTable, int, CharSequence)} (unless {@link #compileGrammar} is
+     * true). Not used if
+     * {@link #incrementalReparsing} is true, since a compiled matcher does not record the span of the input
+     * examined by terminals that it matches inline, or if the input is not a {@link String}.
+     */
+    public ClauseMatcher clauseMatcher;
+}
@@ -0,0 +1,217 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.grammar;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import pikaparser.memotable.MemoStorage;
+import pikaparser.memotable.MemoTable;
+
+/**
+ * Parses many inputs in parallel with the same {@link Grammar}, using an {@link Executor}. Each parse's
+ * {@link MemoTable} is passed to a result mapper function on the thread that ran the parse, so that results (e.g.
+ * ASTs or syntax errors) can be extracted in parallel too, and the memo table can be discarded early.
+ * Inputs are passed to {@link Grammar#parse(CharSequence, ParseOptions, ParseContext)} without being copied (so
+ * e.g. positions in a {@link pikaparser.parser.utils.Utf8Input} are byte offsets), and must not be modified until
+ * their results have been returned.
+ * 
+ * <p>
+ * Inputs are only read from the input stream when there are fewer than {@link #maxInFlight} parses in progress,
+ * which applies backpressure to the producer of the inputs: a slow consumer of results, or slow parsing, causes
+ * inputs to be read more slowly, rather than queueing up unbounded numbers of inputs and results.
+ * 
+ * <p>
+ * The service keeps a pool of up to {@link #maxInFlight} {@link ParseContext} objects, and each parse checks one
+ * out of the pool, so memo table storage is reused across parses without being tied to the executor's threads.
+ * The {@link MemoTable} passed to the result mapper is therefore only valid until the result mapper returns,
+ * unless the result mapper returns the memo table itself. Results should not hold onto the memo table in any
+ * other way (though they may contain {@link pikaparser.memotable.Match} objects or ASTs). With
+ * {@link MemoStorage.Strategy#COMPACT} storage, {@link pikaparser.memotable.Match} objects are views of the memo
+ * table storage, so the storage is not reused, and a result that contains matches keeps the storage alive.
+ */
+public class ParseService {
+    /** The grammar. */
+    public final Grammar grammar;
+
+    /** The parse options. */
+    public final ParseOptions parseOptions;
+
+    /** The executor that parses are run on. */
+    public final Executor executor;
+
+    /** The maximum number of parses that may be in progress (or completed but not yet consumed) at one time. */
+    public final int maxInFlight;
+
+    /** The {@link ParseContext} objects that are not in use by a parse. */
+    private final BlockingQueue<ParseContext> parseContextPool;
+
+    /** The default value for {@link #maxInFlight}: two parses per available processor. */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 2 * Runtime.getRuntime().availableProcessors();
+
+    public ParseService(Grammar grammar, ParseOptions parseOptions, Executor executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.grammar = grammar;
+        this.parseOptions = parseOptions;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.parseContextPool = new ArrayBlockingQueue<>(maxInFlight);
+    }
+
+    public ParseService(Grammar grammar, ParseOptions parseOptions, Executor executor) {
+        this(grammar, parseOptions, executor, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Start parsing an input on the executor, then apply the result mapper to the memo table. */
+    private <R> CompletableFuture<R> submit(CharSequence input, Function<MemoTable, ? extends R> resultMapper) {
+        return CompletableFuture.supplyAsync(() -> {
+            // Check out a ParseContext from the pool, or create one if the pool is empty
+            var parseContext = parseContextPool.poll();
+            if (parseContext == null) {
+                parseContext = new ParseContext(grammar);
+            }
+            try {
+                var memoTable = grammar.parse(input, parseOptions, parseContext);
+                R result = resultMapper.apply(memoTable);
+                if (result == memoTable || parseOptions.memoStorageStrategy == MemoStorage.Strategy.COMPACT) {
+                    // The memo table is returned to the caller, or the result may contain views of compact memo
+                    // table entries, so the storage can't be reused by the next parse
+                    parseContext.release();
+                } else {
+                    // Allow the matches to be garbage collected, while keeping the storage for the next parse
+                    parseContext.reset();
+                }
+                return result;
+            } catch (RuntimeException | Error e) {
+                // Drop the matches of the failed parse
+                parseContext.reset();
+                throw e;
+            } finally {
+                // Return the ParseContext to the pool (if the pool is full, e.g. because parseAll was called
+                // concurrently, the ParseContext is discarded)
+                parseContextPool.offer(parseContext);
+            }
+        }, executor);
+    }
+
+    /** Wait for a result, rethrowing any exception thrown by the parse or the result mapper. */
+    private static <R> R getResult(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parse each of the inputs, and map each resulting {@link MemoTable} to a result using resultMapper. The
+     * returned stream contains the results in the same order as the inputs. Inputs are read lazily, as results are
+     * consumed from the returned stream.
+     */
+    public <R> Stream<R> parseAll(Stream<? extends CharSequence> inputs,
+            Function<MemoTable, ? extends R> resultMapper) {
+        var inputIter = inputs.iterator();
+        var inFlight = new ArrayDeque<CompletableFuture<R>>();
+        var resultIter = new Iterator<R>() {
+            @Override
+            public boolean hasNext() {
+                while (inFlight.size() < maxInFlight && inputIter.hasNext()) {
+                    inFlight.add(submit(inputIter.next(), resultMapper));
+                }
+                return !inFlight.isEmpty();
+            }
+
+            @Override
+            public R next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getResult(inFlight.remove());
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(resultIter, Spliterator.ORDERED), false)
+                .onClose(inputs::close);
+    }
+
+    /**
+     * Parse each of the inputs, map each resulting {@link MemoTable} to a result using resultMapper, and pass the
+     * results to resultConsumer in the order in which the parses complete. The result consumer is called on the
+     * calling thread. Returns once all inputs have been parsed and all results have been consumed.
+     */
+    public <R> void parseAllUnordered(Stream<? extends CharSequence> inputs,
+            Function<MemoTable, ? extends R> resultMapper, Consumer<? super R> resultConsumer) {
+        var inputIter = inputs.iterator();
+        var completed = new LinkedBlockingQueue<CompletableFuture<R>>();
+        var numInFlight = 0;
+        for (;;) {
+            while (numInFlight < maxInFlight && inputIter.hasNext()) {
+                var future = this.<R> submit(inputIter.next(), resultMapper);
+                future.whenComplete((result, exception) -> completed.add(future));
+                numInFlight++;
+            }
+            if (numInFlight == 0) {
+                break;
+            }
+            CompletableFuture<R> future;
+            try {
+                future = completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for parse results");
+            }
+            numInFlight--;
+            resultConsumer.accept(getResult(future));
+        }
+    }
+}
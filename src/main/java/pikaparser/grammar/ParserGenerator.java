@@ -0,0 +1,96 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.grammar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.lang.model.SourceVersion;
+
+/**
+ * Generates the Java source of a parser class for a grammar ahead of time, e.g. at build time, so that the
+ * grammar does not have to be built or compiled when the application runs.
+ * 
+ * <p>
+ * The generated class is a {@link ClauseMatcher} with the same specialized match methods as the matcher returned
+ * by {@link Grammar#compile()}. It also embeds a snapshot of the grammar (see
+ * {@link Grammar#writeSnapshot(java.io.OutputStream)}), and has static fields {@code GRAMMAR} (the grammar read
+ * from the snapshot) and {@code MATCHER}, and static {@code parse} methods that parse input with them. The
+ * generated class depends on the pika parser classes, and must be regenerated when the pika parser version
+ * changes the grammar snapshot format.
+ * 
+ * <p>
+ * Usage: {@code java -cp pikaparser.jar pikaparser.grammar.ParserGenerator <grammarFile> <className> <outputDir>}
+ * reads the grammar description file, and writes the source of the class with the fully qualified name
+ * {@code className} to the package directory under {@code outputDir}.
+ */
+public class ParserGenerator {
+    /** Generate the Java source of a parser class with the given fully qualified name for the grammar. */
+    public static String generateSource(Grammar grammar, String className) {
+        if (!SourceVersion.isName(className)) {
+            throw new IllegalArgumentException("Not a valid class name: " + className);
+        }
+        var snapshot = new ByteArrayOutputStream();
+        try {
+            grammar.writeSnapshot(snapshot);
+        } catch (IOException e) {
+            // Can't happen
+            throw new RuntimeException(e);
+        }
+        return GrammarCompiler.generateSource(grammar, className, snapshot.toByteArray());
+    }
+
+    /**
+     * Read a grammar description file, and write the Java source of a parser class with the given fully
+     * qualified name to the package directory under outputDir, returning the path of the written file.
+     */
+    public static Path generate(Path grammarFile, String className, Path outputDir) throws IOException {
+        var grammar = MetaGrammar.parse(Files.readString(grammarFile, StandardCharsets.UTF_8));
+        var source = generateSource(grammar, className);
+        var sourceFile = outputDir.resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, source, StandardCharsets.UTF_8);
+        return sourceFile;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: java " + ParserGenerator.class.getName()
+                    + " <grammarFile> <className> <outputDir>");
+            System.exit(1);
+        }
+        var sourceFile = generate(Paths.get(args[0]), args[1], Paths.get(args[2]));
+        System.out.println("Wrote " + sourceFile);
+    }
+}
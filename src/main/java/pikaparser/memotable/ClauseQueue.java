@@ -0,0 +1,107 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.memotable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import pikaparser.clause.Clause;
+
+/**
+ * A priority queue of clauses, ordered by {@link Clause#getClauseIdx()}, backed by a bitset. Adding a clause is
+ * O(1), and adding a clause that is already queued has no effect, so a clause is matched at most once per start
+ * position until it is scheduled again. Removing a clause finds the lowest set bit in the bitset.
+ */
+public class ClauseQueue {
+    /** All clauses, indexed by clauseIdx. */
+    private final Clause[] clauses;
+
+    /** The bitset of queued clauses, indexed by clauseIdx. */
+    private final long[] words;
+
+    /** All words with a lower index than this are known to be zero. */
+    private int lowestNonZeroWordIdx;
+
+    public ClauseQueue(List<Clause> allClauses) {
+        this.clauses = allClauses.toArray(new Clause[0]);
+        this.words = new long[(clauses.length + 63) >>> 6];
+        this.lowestNonZeroWordIdx = words.length;
+    }
+
+    /** Add a clause to the queue, if it is not already queued. */
+    public void add(Clause clause) {
+        var clauseIdx = clause.getClauseIdx();
+        var wordIdx = clauseIdx >>> 6;
+        words[wordIdx] |= 1L << clauseIdx;
+        if (wordIdx < lowestNonZeroWordIdx) {
+            lowestNonZeroWordIdx = wordIdx;
+        }
+    }
+
+    /** Add all the given clauses to the queue. */
+    public void addAll(List<Clause> clauses) {
+        for (int i = 0, ii = clauses.size(); i < ii; i++) {
+            add(clauses.get(i));
+        }
+    }
+
+    /** Add all the given clauses to the queue. */
+    public void addAll(Clause[] clauses) {
+        for (int i = 0; i < clauses.length; i++) {
+            add(clauses[i]);
+        }
+    }
+
+    /** Remove all clauses from the queue. */
+    public void clear() {
+        Arrays.fill(words, 0L);
+        lowestNonZeroWordIdx = words.length;
+    }
+
+    /** Return true if there are no queued clauses. */
+    public boolean isEmpty() {
+        while (lowestNonZeroWordIdx < words.length && words[lowestNonZeroWordIdx] == 0L) {
+            lowestNonZeroWordIdx++;
+        }
+        return lowestNonZeroWordIdx == words.length;
+    }
+
+    /** Remove and return the queued clause with the lowest clauseIdx. */
+    public Clause remove() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        var word = words[lowestNonZeroWordIdx];
+        var bitIdx = Long.numberOfTrailingZeros(word);
+        words[lowestNonZeroWordIdx] = word & (word - 1);
+        return clauses[(lowestNonZeroWordIdx << 6) + bitIdx];
+    }
+}
@@ -0,0 +1,64 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.memotable;
+
+/**
+ * A {@link Match} that is a view of an entry in a {@link CompactMemoStorage}. The subclause matches are only
+ * materialized when they are first requested.
+ */
+class CompactMatch extends Match {
+    /** The storage that holds the entry. */
+    final CompactMemoStorage memoStorage;
+
+    /** The index of the entry in the storage. */
+    final int entryIdx;
+
+    /** The generation of the storage when this view was created (see {@link CompactMemoStorage#clear(int)}). */
+    final int generation;
+
+    /** The materialized subclause matches, or null if they have not been requested yet. */
+    private Match[] materializedSubClauseMatches;
+
+    CompactMatch(CompactMemoStorage memoStorage, int entryIdx, int generation, MemoKey memoKey, int len,
+            int firstMatchingSubClauseIdx) {
+        super(memoKey, len, firstMatchingSubClauseIdx, /* subClauseMatches = */ null);
+        this.memoStorage = memoStorage;
+        this.entryIdx = entryIdx;
+        this.generation = generation;
+    }
+
+    @Override
+    Match[] getSubClauseMatchArray() {
+        if (materializedSubClauseMatches == null) {
+            materializedSubClauseMatches = memoStorage.getSubClauseMatches(this);
+        }
+        return materializedSubClauseMatches;
+    }
+}
@@ -0,0 +1,334 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.memotable;
+
+import static pikaparser.memotable.SparseMemoStorage.EMPTY_KEY;
+import static pikaparser.memotable.SparseMemoStorage.MAX_LOAD_FACTOR;
+import static pikaparser.memotable.SparseMemoStorage.hash;
+import static pikaparser.memotable.SparseMemoStorage.key;
+import static pikaparser.memotable.SparseMemoStorage.tableSizeFor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import pikaparser.clause.Clause;
+import pikaparser.clause.terminal.Terminal;
+
+/**
+ * Compact memo table storage. Rather than keeping a {@link Match} object, a {@link MemoKey} object and a subclause
+ * match array per memo entry, the fields of each stored match are kept in parallel primitive arrays indexed by
+ * entry index, and subclause matches are stored as entry indices. An open-addressing hash table maps from
+ * ({@link Clause#getClauseIdx()}, startPos) to entry index.
+ * 
+ * <p>
+ * {@link Match} objects returned by this storage are views ({@link CompactMatch}) that are created on each lookup,
+ * and whose subclause matches are materialized on demand, so the {@link Match} objects created while parsing are
+ * short-lived, and the retained size of the memo table is much smaller. Entries are never freed individually (a
+ * match that is replaced by a better match keeps its entry, since other matches may refer to it as a subclause
+ * match), so removing entries and editing the input are not supported. Views are only valid until
+ * {@link #clear(int)} is called.
+ */
+public class CompactMemoStorage implements MemoStorage {
+    /** All clauses, indexed by clauseIdx. */
+    private final Clause[] clauses;
+
+    /** The packed (clauseIdx, startPos) keys of the hash table. */
+    private long[] keys;
+
+    /** The entry index for each key in the hash table. */
+    private int[] keyEntryIdxs;
+
+    /** The number of keys in the hash table. */
+    private int size;
+
+    /** The number of keys that will cause the hash table to be grown. */
+    private int resizeThreshold;
+
+    /** The clause index of each entry. */
+    private int[] entryClauseIdx;
+
+    /** The start position of each entry. */
+    private int[] entryStartPos;
+
+    /** The match length of each entry. */
+    private int[] entryLen;
+
+    /** The first matching subclause index of each entry (see {@link Match#firstMatchingSubClauseIdx}). */
+    private int[] entryFirstMatchingSubClauseIdx;
+
+    /**
+     * The index in {@link #subClauseEntryIdxs} of the first subclause match of each entry (with one extra element
+     * at the end, so that the subclause matches of entryIdx are in the range [subClauseStart[entryIdx],
+     * subClauseStart[entryIdx + 1])).
+     */
+    private int[] subClauseStart;
+
+    /** The number of entries. */
+    private int numEntries;
+
+    /** The entry indices of the subclause matches of all entries. */
+    private int[] subClauseEntryIdxs;
+
+    /** The number of used elements of {@link #subClauseEntryIdxs}. */
+    private int numSubClauseEntryIdxs;
+
+    /** Scratch stack for the entry indices of the subclause matches of entries that are being added. */
+    private int[] entryIdxStack = new int[16];
+
+    /** The number of used elements of {@link #entryIdxStack}. */
+    private int entryIdxStackSize;
+
+    /** True if a match without recorded subclause matches has been added (see {@link MemoTable#recognizeOnly}). */
+    private boolean subClauseMatchesNotRecorded;
+
+    /** Incremented by {@link #clear(int)}, to detect views of entries that no longer exist. */
+    private int generation;
+
+    public CompactMemoStorage(List<Clause> allClauses, int expectedSize) {
+        this.clauses = allClauses.toArray(new Clause[0]);
+        allocateHashTable(tableSizeFor(expectedSize));
+        var entryCapacity = Math.max(expectedSize, 16);
+        entryClauseIdx = new int[entryCapacity];
+        entryStartPos = new int[entryCapacity];
+        entryLen = new int[entryCapacity];
+        entryFirstMatchingSubClauseIdx = new int[entryCapacity];
+        subClauseStart = new int[entryCapacity + 1];
+        subClauseEntryIdxs = new int[entryCapacity];
+    }
+
+    /** Get the number of clauses that the storage was created for. */
+    public int getNumClauses() {
+        return clauses.length;
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Allocate an empty hash table. */
+    private void allocateHashTable(int tableSize) {
+        keys = new long[tableSize];
+        Arrays.fill(keys, EMPTY_KEY);
+        keyEntryIdxs = new int[tableSize];
+        resizeThreshold = (int) (tableSize * MAX_LOAD_FACTOR);
+    }
+
+    /** Double the size of the hash table, and rehash all keys. */
+    private void growHashTable() {
+        var oldKeys = keys;
+        var oldKeyEntryIdxs = keyEntryIdxs;
+        allocateHashTable(oldKeys.length * 2);
+        var mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            var key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                var slot = hash(key, mask);
+                while (keys[slot] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                keyEntryIdxs[slot] = oldKeyEntryIdxs[i];
+            }
+        }
+    }
+
+    /** Get the entry index for the given clause index and start position, or -1 if there is none. */
+    private int getEntryIdx(int clauseIdx, int startPos) {
+        var key = key(clauseIdx, startPos);
+        var mask = keys.length - 1;
+        for (var slot = hash(key, mask);; slot = (slot + 1) & mask) {
+            var slotKey = keys[slot];
+            if (slotKey == key) {
+                return keyEntryIdxs[slot];
+            } else if (slotKey == EMPTY_KEY) {
+                return -1;
+            }
+        }
+    }
+
+    /** Create a view of the given entry. */
+    private Match getView(int entryIdx) {
+        return new CompactMatch(this, entryIdx, generation,
+                new MemoKey(clauses[entryClauseIdx[entryIdx]], entryStartPos[entryIdx]), entryLen[entryIdx],
+                entryFirstMatchingSubClauseIdx[entryIdx]);
+    }
+
+    /** Materialize the subclause matches of a view. */
+    Match[] getSubClauseMatches(CompactMatch match) {
+        if (match.generation != generation) {
+            throw new IllegalStateException("Memo table storage was cleared after the match was looked up");
+        }
+        var entryIdx = match.entryIdx;
+        var start = subClauseStart[entryIdx];
+        var end = subClauseStart[entryIdx + 1];
+        if (start == end) {
+            return subClauseMatchesNotRecorded && !(clauses[entryClauseIdx[entryIdx]] instanceof Terminal)
+                    ? Match.SUBCLAUSE_MATCHES_NOT_RECORDED
+                    : Match.NO_SUBCLAUSE_MATCHES;
+        }
+        var subClauseMatches = new Match[end - start];
+        for (int i = start; i < end; i++) {
+            subClauseMatches[i - start] = getView(subClauseEntryIdxs[i]);
+        }
+        return subClauseMatches;
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Get the entry index for a match, adding an entry for the match (and its subclause matches) if needed. */
+    private int getOrAddEntry(Match match) {
+        if (match instanceof CompactMatch) {
+            var compactMatch = (CompactMatch) match;
+            if (compactMatch.memoStorage == this && compactMatch.generation == generation) {
+                return compactMatch.entryIdx;
+            }
+        }
+        // Subclause matches are looked up in the memo table just before their parent match is added, so a
+        // subclause match that is not a view of this storage is usually the match that is stored for its clause
+        // and start position (a terminal match, or a match copied from other storage). Otherwise it is a
+        // zero-length match that was not memoized, which needs its own entry.
+        var entryIdx = getEntryIdx(match.memoKey.clause.getClauseIdx(), match.memoKey.startPos);
+        if (entryIdx >= 0 && entryLen[entryIdx] == match.len
+                && entryFirstMatchingSubClauseIdx[entryIdx] == match.firstMatchingSubClauseIdx) {
+            return entryIdx;
+        }
+        return addEntry(match);
+    }
+
+    /** Add an entry for a match, and for any of its subclause matches that don't already have entries. */
+    private int addEntry(Match match) {
+        // Find or add the entries of the subclause matches first, pushing their indices onto the stack
+        var subClauseMatches = match.getSubClauseMatchArray();
+        if (subClauseMatches == Match.SUBCLAUSE_MATCHES_NOT_RECORDED) {
+            subClauseMatchesNotRecorded = true;
+        }
+        var numSubClauseMatches = subClauseMatches.length;
+        var stackBase = entryIdxStackSize;
+        for (int i = 0; i < numSubClauseMatches; i++) {
+            var subClauseEntryIdx = getOrAddEntry(subClauseMatches[i]);
+            if (entryIdxStackSize == entryIdxStack.length) {
+                entryIdxStack = Arrays.copyOf(entryIdxStack, entryIdxStack.length * 2);
+            }
+            entryIdxStack[entryIdxStackSize++] = subClauseEntryIdx;
+        }
+        if (numEntries + 1 >= subClauseStart.length) {
+            var newCapacity = entryClauseIdx.length * 2;
+            entryClauseIdx = Arrays.copyOf(entryClauseIdx, newCapacity);
+            entryStartPos = Arrays.copyOf(entryStartPos, newCapacity);
+            entryLen = Arrays.copyOf(entryLen, newCapacity);
+            entryFirstMatchingSubClauseIdx = Arrays.copyOf(entryFirstMatchingSubClauseIdx, newCapacity);
+            subClauseStart = Arrays.copyOf(subClauseStart, newCapacity + 1);
+        }
+        if (numSubClauseEntryIdxs + numSubClauseMatches > subClauseEntryIdxs.length) {
+            subClauseEntryIdxs = Arrays.copyOf(subClauseEntryIdxs,
+                    Math.max(subClauseEntryIdxs.length * 2, numSubClauseEntryIdxs + numSubClauseMatches));
+        }
+        var entryIdx = numEntries++;
+        entryClauseIdx[entryIdx] = match.memoKey.clause.getClauseIdx();
+        entryStartPos[entryIdx] = match.memoKey.startPos;
+        entryLen[entryIdx] = match.len;
+        entryFirstMatchingSubClauseIdx[entryIdx] = match.firstMatchingSubClauseIdx;
+        System.arraycopy(entryIdxStack, stackBase, subClauseEntryIdxs, numSubClauseEntryIdxs, numSubClauseMatches);
+        numSubClauseEntryIdxs += numSubClauseMatches;
+        subClauseStart[entryIdx + 1] = numSubClauseEntryIdxs;
+        entryIdxStackSize = stackBase;
+        return entryIdx;
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public Match get(int clauseIdx, int startPos) {
+        var entryIdx = getEntryIdx(clauseIdx, startPos);
+        return entryIdx < 0 ? null : getView(entryIdx);
+    }
+
+    @Override
+    public Match put(int clauseIdx, int startPos, Match match) {
+        var entryIdx = getOrAddEntry(match);
+        var key = key(clauseIdx, startPos);
+        var mask = keys.length - 1;
+        var slot = hash(key, mask);
+        for (;; slot = (slot + 1) & mask) {
+            var slotKey = keys[slot];
+            if (slotKey == key) {
+                var oldEntryIdx = keyEntryIdxs[slot];
+                keyEntryIdxs[slot] = entryIdx;
+                return getView(oldEntryIdx);
+            } else if (slotKey == EMPTY_KEY) {
+                break;
+            }
+        }
+        keys[slot] = key;
+        keyEntryIdxs[slot] = entryIdx;
+        if (++size > resizeThreshold) {
+            growHashTable();
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<Match> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY) {
+                action.accept(getView(keyEntryIdxs[i]));
+            }
+        }
+    }
+
+    @Override
+    public Match remove(int clauseIdx, int startPos) {
+        throw new UnsupportedOperationException("Compact memo storage does not support removing entries");
+    }
+
+    @Override
+    public void applyEdit(int removedStartPos, int firstShiftedStartPos, int delta, int newInputLength) {
+        throw new UnsupportedOperationException("Compact memo storage does not support editing the input");
+    }
+
+    @Override
+    public void clear(int expectedSize) {
+        var tableSize = tableSizeFor(expectedSize);
+        if (tableSize > keys.length) {
+            allocateHashTable(tableSize);
+        } else if (size > 0) {
+            Arrays.fill(keys, EMPTY_KEY);
+        }
+        size = 0;
+        numEntries = 0;
+        numSubClauseEntryIdxs = 0;
+        subClauseMatchesNotRecorded = false;
+        generation++;
+    }
+}
@@ -0,0 +1,174 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.memotable;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import pikaparser.clause.Clause;
+
+/**
+ * Dense memo table storage: one column array per clause, indexed by start position. Lookups need no hashing, but
+ * the storage for each clause that has at least one match grows with the length of the input, so this is only
+ * suitable for small grammars or short inputs.
+ */
+public class DenseMemoStorage implements MemoStorage {
+    /** Column arrays indexed by {@link Clause#getClauseIdx()} then by start position (null until first used). */
+    private final Match[][] columns;
+
+    /**
+     * The length of each column array that is in use (one more than the input length, to allow matches at the
+     * end). Column arrays may be longer than this after an edit.
+     */
+    private int columnLength;
+
+    /** The number of entries. */
+    private int size;
+
+    public DenseMemoStorage(int numClauses, int inputLength) {
+        this.columns = new Match[numClauses][];
+        this.columnLength = inputLength + 1;
+    }
+
+    /** Estimate the number of bytes used by the storage if every clause has at least one match. */
+    public static long maxSizeInBytes(int numClauses, int inputLength) {
+        // Assume 8-byte references (no compressed oops), plus a 16-byte header per column array
+        return (long) numClauses * (8L * (inputLength + 1L) + 16L);
+    }
+
+    /** Get the number of clauses that the storage was created for. */
+    public int getNumClauses() {
+        return columns.length;
+    }
+
+    @Override
+    public Match get(int clauseIdx, int startPos) {
+        var column = columns[clauseIdx];
+        return column == null ? null : column[startPos];
+    }
+
+    @Override
+    public Match put(int clauseIdx, int startPos, Match match) {
+        var column = columns[clauseIdx];
+        if (column == null) {
+            columns[clauseIdx] = column = new Match[columnLength];
+        }
+        var oldMatch = column[startPos];
+        column[startPos] = match;
+        if (oldMatch == null) {
+            size++;
+        }
+        return oldMatch;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<Match> action) {
+        for (var column : columns) {
+            if (column != null) {
+                for (var match : column) {
+                    if (match != null) {
+                        action.accept(match);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Match remove(int clauseIdx, int startPos) {
+        var column = columns[clauseIdx];
+        var oldMatch = column == null ? null : column[startPos];
+        if (oldMatch != null) {
+            column[startPos] = null;
+            size--;
+        }
+        return oldMatch;
+    }
+
+    @Override
+    public void applyEdit(int removedStartPos, int firstShiftedStartPos, int delta, int newInputLength) {
+        var newColumnLength = newInputLength + 1;
+        for (int clauseIdx = 0; clauseIdx < columns.length; clauseIdx++) {
+            var column = columns[clauseIdx];
+            if (column != null) {
+                for (int startPos = removedStartPos; startPos < firstShiftedStartPos; startPos++) {
+                    if (column[startPos] != null) {
+                        column[startPos] = null;
+                        size--;
+                    }
+                }
+                var newColumn = column;
+                if (column.length < newColumnLength) {
+                    newColumn = new Match[newColumnLength];
+                    System.arraycopy(column, 0, newColumn, 0, firstShiftedStartPos);
+                }
+                System.arraycopy(column, firstShiftedStartPos, newColumn, firstShiftedStartPos + delta,
+                        columnLength - firstShiftedStartPos);
+                for (int startPos = firstShiftedStartPos + delta; startPos < newColumnLength; startPos++) {
+                    if (newColumn[startPos] != null) {
+                        newColumn[startPos] = ShiftedMatch.shift(newColumn[startPos], startPos);
+                    }
+                }
+                // Clear the entries that were moved from
+                if (delta > 0) {
+                    Arrays.fill(newColumn, firstShiftedStartPos, firstShiftedStartPos + delta, null);
+                } else if (delta < 0) {
+                    Arrays.fill(newColumn, newColumnLength, columnLength, null);
+                }
+                columns[clauseIdx] = newColumn;
+            }
+        }
+        columnLength = newColumnLength;
+    }
+
+    @Override
+    public void clear(int inputLength) {
+        var newColumnLength = inputLength + 1;
+        for (int clauseIdx = 0; clauseIdx < columns.length; clauseIdx++) {
+            var column = columns[clauseIdx];
+            if (column != null) {
+                if (column.length >= newColumnLength) {
+                    // Entries past columnLength are always null
+                    Arrays.fill(column, 0, Math.min(column.length, columnLength), null);
+                } else {
+                    // Column is too short -- reallocate it when it is next used
+                    columns[clauseIdx] = null;
+                }
+            }
+        }
+        columnLength = newColumnLength;
+        size = 0;
+    }
+}
@@ -0,0 +1,350 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.memotable;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import pikaparser.clause.Clause;
+
+/**
+ * Memo table storage for parses with {@link pikaparser.grammar.ParseOptions#incrementalReparsing}. The memo entries
+ * at each start position are stored together, with a small open-addressing hash index keyed by
+ * {@link Clause#getClauseIdx()}, along with the greatest input position examined by each clause that was matched or
+ * looked up at the start position. An edit of the input only moves the references to the tables of the start
+ * positions after the edit (see {@link #applyEdit(int, int, int, int)}), rather than every memo entry, and the
+ * matches that were moved are shifted lazily when they are looked up (see {@link ShiftedMatch}). The greatest
+ * input positions examined are stored relative to the start position, so they don't change when they are moved.
+ */
+public class EditableMemoStorage implements MemoStorage {
+    /** The memo entries at each start position (null if there are none). */
+    private PositionEntries[] entries;
+
+    /**
+     * For each start position, the greatest number of characters after the start position examined by any clause
+     * matched or looked up there, or -1 if none, so that the start positions with memo entries that examined a
+     * given input position can be found without visiting every memo entry.
+     */
+    private int[] maxReadLens;
+
+    /** The number of start positions in use (one more than the input length, to allow matches at the end). */
+    private int numPositions;
+
+    /** The number of matches. */
+    private int size;
+
+    /** Called for each entry that is removed by {@link #removeEntriesThatExamined(int, RemovedEntryHandler)}. */
+    interface RemovedEntryHandler {
+        void entryRemoved(int clauseIdx, int startPos);
+    }
+
+    /**
+     * The memo entries at one start position, stored in the order they were added, with an open-addressing hash
+     * index from clause index to entry index.
+     */
+    private static class PositionEntries {
+        /** The entry index plus one at each slot of the hash index, or 0 for an empty slot. */
+        int[] index = new int[16];
+
+        /** The clause index of each entry. */
+        int[] clauseIdxs = new int[8];
+
+        /** The match of each entry, or null if the clause did not match. */
+        Match[] matches = new Match[8];
+
+        /**
+         * The greatest number of characters after the start position examined while matching the clause of each
+         * entry, or -1 if the clause was not matched.
+         */
+        int[] maxReadLens = new int[8];
+
+        /**
+         * The greatest number of characters after the start position that the absence of a match of the clause of
+         * each entry depends upon, if the clause was never matched, or -1 if not known.
+         */
+        int[] unmatchedMaxReadLens = new int[8];
+
+        /** The number of entries. */
+        int numEntries;
+
+        /** Find the entry index for a clause index, or -1 if there is none. */
+        int find(int clauseIdx) {
+            var mask = index.length - 1;
+            for (var slot = clauseIdx & mask;; slot = (slot + 1) & mask) {
+                var entryIdx = index[slot] - 1;
+                if (entryIdx < 0 || clauseIdxs[entryIdx] == clauseIdx) {
+                    return entryIdx;
+                }
+            }
+        }
+
+        /** Find the entry index for a clause index, adding an empty entry if there is none. */
+        int findOrAdd(int clauseIdx) {
+            var entryIdx = find(clauseIdx);
+            if (entryIdx >= 0) {
+                return entryIdx;
+            }
+            if (numEntries == clauseIdxs.length) {
+                grow();
+            }
+            entryIdx = numEntries++;
+            clauseIdxs[entryIdx] = clauseIdx;
+            maxReadLens[entryIdx] = -1;
+            unmatchedMaxReadLens[entryIdx] = -1;
+            addToIndex(entryIdx);
+            return entryIdx;
+        }
+
+        /** Add an entry to the hash index. */
+        private void addToIndex(int entryIdx) {
+            var mask = index.length - 1;
+            var slot = clauseIdxs[entryIdx] & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = entryIdx + 1;
+        }
+
+        /** Double the number of entries that can be stored, and rebuild the hash index. */
+        private void grow() {
+            var capacity = clauseIdxs.length * 2;
+            clauseIdxs = Arrays.copyOf(clauseIdxs, capacity);
+            matches = Arrays.copyOf(matches, capacity);
+            maxReadLens = Arrays.copyOf(maxReadLens, capacity);
+            unmatchedMaxReadLens = Arrays.copyOf(unmatchedMaxReadLens, capacity);
+            index = new int[capacity * 2];
+            for (int entryIdx = 0; entryIdx < numEntries; entryIdx++) {
+                addToIndex(entryIdx);
+            }
+        }
+
+        /** Get the greatest number of characters examined by the clause of any entry. */
+        int getMaxReadLen() {
+            var maxReadLen = -1;
+            for (int entryIdx = 0; entryIdx < numEntries; entryIdx++) {
+                maxReadLen = Math.max(maxReadLen, Math.max(maxReadLens[entryIdx], unmatchedMaxReadLens[entryIdx]));
+            }
+            return maxReadLen;
+        }
+    }
+
+    public EditableMemoStorage(int inputLength) {
+        clear(inputLength);
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Get the memo entries at a start position, creating them if needed. */
+    private PositionEntries getOrCreateEntries(int startPos) {
+        var positionEntries = entries[startPos];
+        if (positionEntries == null) {
+            entries[startPos] = positionEntries = new PositionEntries();
+        }
+        return positionEntries;
+    }
+
+    @Override
+    public Match get(int clauseIdx, int startPos) {
+        var positionEntries = entries[startPos];
+        var entryIdx = positionEntries == null ? -1 : positionEntries.find(clauseIdx);
+        var match = entryIdx < 0 ? null : positionEntries.matches[entryIdx];
+        return match == null ? null : ShiftedMatch.shift(match, startPos);
+    }
+
+    @Override
+    public Match put(int clauseIdx, int startPos, Match match) {
+        var positionEntries = getOrCreateEntries(startPos);
+        var entryIdx = positionEntries.findOrAdd(clauseIdx);
+        var oldMatch = positionEntries.matches[entryIdx];
+        positionEntries.matches[entryIdx] = match;
+        if (oldMatch == null) {
+            size++;
+            return null;
+        }
+        return ShiftedMatch.shift(oldMatch, startPos);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<Match> action) {
+        for (int startPos = 0; startPos < numPositions; startPos++) {
+            var positionEntries = entries[startPos];
+            if (positionEntries != null) {
+                for (int entryIdx = 0; entryIdx < positionEntries.numEntries; entryIdx++) {
+                    var match = positionEntries.matches[entryIdx];
+                    if (match != null) {
+                        action.accept(ShiftedMatch.shift(match, startPos));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Match remove(int clauseIdx, int startPos) {
+        var positionEntries = entries[startPos];
+        var entryIdx = positionEntries == null ? -1 : positionEntries.find(clauseIdx);
+        var oldMatch = entryIdx < 0 ? null : positionEntries.matches[entryIdx];
+        if (oldMatch == null) {
+            return null;
+        }
+        positionEntries.matches[entryIdx] = null;
+        size--;
+        return ShiftedMatch.shift(oldMatch, startPos);
+    }
+
+    @Override
+    public void applyEdit(int removedStartPos, int firstShiftedStartPos, int delta, int newInputLength) {
+        for (int startPos = removedStartPos; startPos < firstShiftedStartPos; startPos++) {
+            var positionEntries = entries[startPos];
+            if (positionEntries != null) {
+                for (int entryIdx = 0; entryIdx < positionEntries.numEntries; entryIdx++) {
+                    if (positionEntries.matches[entryIdx] != null) {
+                        size--;
+                    }
+                }
+            }
+        }
+        var newNumPositions = newInputLength + 1;
+        if (newNumPositions > entries.length) {
+            var newLength = Math.max(newNumPositions, entries.length + (entries.length >> 1));
+            entries = Arrays.copyOf(entries, newLength);
+            maxReadLens = Arrays.copyOf(maxReadLens, newLength);
+            Arrays.fill(maxReadLens, numPositions, newLength, -1);
+        }
+        // Move the entries after the edit, then clear the entries of the removed and inserted start positions, and
+        // the entries that were moved from past the new end of the input
+        System.arraycopy(entries, firstShiftedStartPos, entries, firstShiftedStartPos + delta,
+                numPositions - firstShiftedStartPos);
+        System.arraycopy(maxReadLens, firstShiftedStartPos, maxReadLens, firstShiftedStartPos + delta,
+                numPositions - firstShiftedStartPos);
+        Arrays.fill(entries, removedStartPos, firstShiftedStartPos + delta, null);
+        Arrays.fill(maxReadLens, removedStartPos, firstShiftedStartPos + delta, -1);
+        if (newNumPositions < numPositions) {
+            Arrays.fill(entries, newNumPositions, numPositions, null);
+            Arrays.fill(maxReadLens, newNumPositions, numPositions, -1);
+        }
+        numPositions = newNumPositions;
+    }
+
+    @Override
+    public void clear(int inputLength) {
+        numPositions = inputLength + 1;
+        entries = new PositionEntries[numPositions];
+        maxReadLens = new int[numPositions];
+        Arrays.fill(maxReadLens, -1);
+        size = 0;
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Get the greatest input position examined while matching the given clause at the given start position, or -1
+     * if the clause was not matched there.
+     */
+    int getMaxReadPos(int clauseIdx, int startPos) {
+        var positionEntries = entries[startPos];
+        var entryIdx = positionEntries == null ? -1 : positionEntries.find(clauseIdx);
+        var maxReadLen = entryIdx < 0 ? -1 : positionEntries.maxReadLens[entryIdx];
+        return maxReadLen < 0 ? -1 : startPos + maxReadLen;
+    }
+
+    /**
+     * Set the greatest input position examined while matching the given clause at the given start position, if it
+     * is greater than the current value.
+     */
+    void putMaxReadPos(int clauseIdx, int startPos, int maxReadPos) {
+        var positionEntries = getOrCreateEntries(startPos);
+        var entryIdx = positionEntries.findOrAdd(clauseIdx);
+        var maxReadLen = maxReadPos - startPos;
+        if (maxReadLen > positionEntries.maxReadLens[entryIdx]) {
+            positionEntries.maxReadLens[entryIdx] = maxReadLen;
+            maxReadLens[startPos] = Math.max(maxReadLens[startPos], maxReadLen);
+        }
+    }
+
+    /**
+     * Get the greatest input position that the absence of a match of a clause that was never matched at a start
+     * position depends upon, or -1 if it is not known.
+     */
+    int getUnmatchedMaxReadPos(int clauseIdx, int startPos) {
+        var positionEntries = entries[startPos];
+        var entryIdx = positionEntries == null ? -1 : positionEntries.find(clauseIdx);
+        var maxReadLen = entryIdx < 0 ? -1 : positionEntries.unmatchedMaxReadLens[entryIdx];
+        return maxReadLen < 0 ? -1 : startPos + maxReadLen;
+    }
+
+    /**
+     * Set the greatest input position that the absence of a match of a clause that was never matched at a start
+     * position depends upon, if it is greater than the current value.
+     */
+    void putUnmatchedMaxReadPos(int clauseIdx, int startPos, int maxReadPos) {
+        var positionEntries = getOrCreateEntries(startPos);
+        var entryIdx = positionEntries.findOrAdd(clauseIdx);
+        var maxReadLen = maxReadPos - startPos;
+        if (maxReadLen > positionEntries.unmatchedMaxReadLens[entryIdx]) {
+            positionEntries.unmatchedMaxReadLens[entryIdx] = maxReadLen;
+            maxReadLens[startPos] = Math.max(maxReadLens[startPos], maxReadLen);
+        }
+    }
+
+    /**
+     * Remove the matches and greatest input positions examined of the clauses at start positions before pos that
+     * examined pos. The handler is called for each clause that was matched and examined pos (whether or not it
+     * matched). Takes time proportional to pos, plus the number of memo entries at the start positions that have
+     * any such clause.
+     */
+    void removeEntriesThatExamined(int pos, RemovedEntryHandler removedHandler) {
+        for (int startPos = 0; startPos < pos; startPos++) {
+            if (startPos + maxReadLens[startPos] >= pos) {
+                var positionEntries = entries[startPos];
+                for (int entryIdx = 0; entryIdx < positionEntries.numEntries; entryIdx++) {
+                    var maxReadLen = positionEntries.maxReadLens[entryIdx];
+                    if (maxReadLen >= 0 && startPos + maxReadLen >= pos) {
+                        if (positionEntries.matches[entryIdx] != null) {
+                            positionEntries.matches[entryIdx] = null;
+                            size--;
+                        }
+                        positionEntries.maxReadLens[entryIdx] = -1;
+                        removedHandler.entryRemoved(positionEntries.clauseIdxs[entryIdx], startPos);
+                    }
+                    if (startPos + positionEntries.unmatchedMaxReadLens[entryIdx] >= pos) {
+                        positionEntries.unmatchedMaxReadLens[entryIdx] = -1;
+                    }
+                }
+                maxReadLens[startPos] = positionEntries.getMaxReadLen();
+            }
+        }
+    }
+}
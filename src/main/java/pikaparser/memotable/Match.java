@@ -52,14 +52,17 @@ public class Match {
      * The subclause index of the first matching subclause (will be 0 unless {@link #labeledClause} is a
      * {@link First}, and the matching clause was not the first subclause).
      */
-    private int firstMatchingSubClauseIdx;
+    final int firstMatchingSubClauseIdx;
 
-    /** The subclause matches. */
-    private final Match[] subClauseMatches;
+    /** The subclause matches (null for a {@link CompactMatch}, which materializes them on demand). */
+    final Match[] subClauseMatches;
 
     /** There are no subclause matches for terminals. */
     public static final Match[] NO_SUBCLAUSE_MATCHES = new Match[0];
 
+    /** The subclause matches of nonterminal matches are not recorded if {@link MemoTable#recognizeOnly} is true. */
+    public static final Match[] SUBCLAUSE_MATCHES_NOT_RECORDED = new Match[0];
+
     /** Construct a new match. */
     public Match(MemoKey memoKey, int len, int firstMatchingSubClauseIdx, Match[] subClauseMatches) {
         this.memoKey = memoKey;
@@ -83,6 +86,11 @@ public class Match {
         this(memoKey, /* len = */ 0);
     }
 
+    /** Get the subclause matches, without flattening {@link OneOrMore} matches. */
+    Match[] getSubClauseMatchArray() {
+        return subClauseMatches;
+    }
+
     /**
      * Get subclause matches. Automatically flattens the right-recursive structure of {@link OneOrMore} nodes,
      * collecting the subclause matches into a single array of (AST node label, subclause match) tuples.
@@ -90,6 +98,11 @@ public class Match {
      * @return A list of tuples: (AST node label, subclause match).
      */
     public List<Entry<String, Match>> getSubClauseMatches() {
+        var subClauseMatches = getSubClauseMatchArray();
+        if (subClauseMatches == SUBCLAUSE_MATCHES_NOT_RECORDED) {
+            throw new IllegalStateException(
+                    "Subclause matches were not recorded, since the input was parsed with recognizeOnly == true");
+        }
         if (subClauseMatches.length == 0) {
             // This is a terminals, or an empty placeholder match returned by MemoTable.lookUpBestMatch
             return Collections.emptyList();
@@ -97,17 +110,17 @@ public class Match {
         if (memoKey.clause instanceof OneOrMore) {
             // Flatten right-recursive structure of OneOrMore parse subtree
             var subClauseMatchesToUse = new ArrayList<Entry<String, Match>>();
-            for (var curr = this; curr.subClauseMatches.length > 0;) {
+            for (var currSubClauseMatches = subClauseMatches; currSubClauseMatches.length > 0;) {
                 // Add head of right-recursive list to arraylist, paired with its AST node label, if present
-                subClauseMatchesToUse.add(new SimpleEntry<>(curr.memoKey.clause.labeledSubClauses[0].astNodeLabel,
-                        curr.subClauseMatches[0]));
-                if (curr.subClauseMatches.length == 1) {
+                subClauseMatchesToUse.add(new SimpleEntry<>(memoKey.clause.labeledSubClauses[0].astNodeLabel,
+                        currSubClauseMatches[0]));
+                if (currSubClauseMatches.length == 1) {
                     // The last element of the right-recursive list will have a single element, i.e. (head),
                     // rather than two elements, i.e. (head, tail) -- see the OneOrMore.match method
                     break;
                 }
                 // Move to tail of list
-                curr = curr.subClauseMatches[1];
+                currSubClauseMatches = currSubClauseMatches[1].getSubClauseMatchArray();
             }
             return subClauseMatchesToUse;
         } else if (memoKey.clause instanceof First) {
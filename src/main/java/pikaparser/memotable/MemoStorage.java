@@ -0,0 +1,150 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.memotable;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import pikaparser.clause.Clause;
+
+/** Storage for the memo table, mapping from ({@link Clause#getClauseIdx()}, startPos) to {@link Match}. */
+public interface MemoStorage {
+    /** The strategy used to choose a {@link MemoStorage} implementation for a parse. */
+    public static enum Strategy {
+        /** Use a {@link DenseMemoStorage}, i.e. a column array indexed by start position for each clause. */
+        DENSE,
+
+        /** Use a {@link SparseMemoStorage}, i.e. an open-addressing hash table. */
+        SPARSE,
+
+        /**
+         * Use a {@link CompactMemoStorage}, which stores the fields of matches in primitive arrays rather than as
+         * {@link Match} objects, to reduce the size of the memo table for large inputs. {@link Match} objects
+         * returned by the memo table are views that are only valid until the storage is reused (see
+         * {@link pikaparser.grammar.ParseContext}). Does not support {@link MemoTable#applyEdit(int, int, String)}.
+         */
+        COMPACT,
+
+        /**
+         * Use a {@link DenseMemoStorage} if its maximum size, given the number of clauses in the grammar and the
+         * length of the input, fits within the memory limit, otherwise use a {@link SparseMemoStorage}.
+         */
+        AUTO;
+    }
+
+    /** Get the {@link Match} for the given clause index and start position, or null if there is none. */
+    public Match get(int clauseIdx, int startPos);
+
+    /**
+     * Set the {@link Match} for the given clause index and start position.
+     * 
+     * @return The previous match for the clause index and start position, or null if there was none.
+     */
+    public Match put(int clauseIdx, int startPos, Match match);
+
+    /** Get the number of entries. */
+    public int size();
+
+    /** Call the given action for each {@link Match} in the storage. */
+    public void forEach(Consumer<Match> action);
+
+    /**
+     * Remove the {@link Match} for the given clause index and start position.
+     * 
+     * @return The removed match, or null if there was none.
+     */
+    public Match remove(int clauseIdx, int startPos);
+
+    /**
+     * Update the storage for an edit of the input: remove the entries with start positions in [removedStartPos,
+     * firstShiftedStartPos), then move the entries at or after firstShiftedStartPos to start position + delta.
+     * The moved matches are returned as {@link ShiftedMatch} views with their new start positions.
+     */
+    public void applyEdit(int removedStartPos, int firstShiftedStartPos, int delta, int newInputLength);
+
+    /**
+     * Remove all entries, and prepare the storage for an input of the given length, keeping the backing arrays if
+     * they are already large enough.
+     */
+    public void clear(int inputLength);
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Create a {@link MemoStorage} instance using the given strategy. */
+    public static MemoStorage create(Strategy strategy, List<Clause> allClauses, int inputLength,
+            long maxDenseMemoStorageBytes) {
+        return createOrReuse(/* memoStorage = */ null, strategy, allClauses, inputLength, maxDenseMemoStorageBytes);
+    }
+
+    /**
+     * Clear and return the given {@link MemoStorage} if it is non-null, and if it is of the type that the given
+     * strategy chooses for the input length (and was created for the same number of clauses). Otherwise create a
+     * new {@link MemoStorage} instance using the given strategy.
+     */
+    public static MemoStorage createOrReuse(MemoStorage memoStorage, Strategy strategy, List<Clause> allClauses,
+            int inputLength, long maxDenseMemoStorageBytes) {
+        var numClauses = allClauses.size();
+        boolean dense;
+        switch (strategy) {
+        case COMPACT:
+            if (memoStorage instanceof CompactMemoStorage
+                    && ((CompactMemoStorage) memoStorage).getNumClauses() == numClauses) {
+                memoStorage.clear(/* expectedSize = */ inputLength);
+                return memoStorage;
+            }
+            return new CompactMemoStorage(allClauses, /* expectedSize = */ inputLength);
+        case DENSE:
+            dense = true;
+            break;
+        case SPARSE:
+            dense = false;
+            break;
+        case AUTO:
+            dense = DenseMemoStorage.maxSizeInBytes(numClauses, inputLength) <= maxDenseMemoStorageBytes;
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown strategy: " + strategy);
+        }
+        if (dense) {
+            if (memoStorage instanceof DenseMemoStorage
+                    && ((DenseMemoStorage) memoStorage).getNumClauses() == numClauses) {
+                memoStorage.clear(inputLength);
+                return memoStorage;
+            }
+            return new DenseMemoStorage(numClauses, inputLength);
+        } else {
+            if (memoStorage instanceof SparseMemoStorage) {
+                memoStorage.clear(/* expectedSize = */ inputLength);
+                return memoStorage;
+            }
+            return new SparseMemoStorage(/* expectedSize = */ inputLength);
+        }
+    }
+}
@@ -30,34 +30,107 @@
 package pikaparser.memotable;
 
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
-import java.util.PriorityQueue;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import pikaparser.clause.Clause;
 import pikaparser.clause.nonterminal.NotFollowedBy;
 import pikaparser.grammar.Grammar;
+import pikaparser.grammar.ParseOptions;
 import pikaparser.parser.utils.IntervalUnion;
+import pikaparser.parser.utils.Utf8Input;
 
-/** A memo entry for a specific {@link Clause} at a specific start position. */
+/**
+ * A memo entry for a specific {@link Clause} at a specific start position.
+ * 
+ * <p>
+ * Once parsing has finished, a memo table may be queried (e.g. with {@link #getNonOverlappingMatches(Clause)} or
+ * {@link #getSyntaxErrors(String...)}) by several threads at once. Methods that modify the memo table (e.g.
+ * {@link #addMatch(Clause, int, Match, ClauseQueue)}, {@link #applyEdit(int, int, String)} and
+ * {@link #retainOnly(String...)}) must not be called concurrently with any other method.
+ */
 public class MemoTable {
     /**
-     * A map from clause to startPos to a {@link Match} for the memo entry. (Use concurrent data structures so that
-     * terminals can be memoized in parallel during initialization.)
+     * A map from clause to startPos to a {@link Match} for the memo entry. (Terminals can be matched in parallel
+     * before the main parsing loop, if {@link ParseOptions#parallelTerminalMatching} is true -- see
+     * {@link TerminalMatches}.)
      */
-    private Map<MemoKey, Match> memoTable = new HashMap<>();
+    private MemoStorage memoTable;
 
     /** The grammar. */
     public Grammar grammar;
 
-    /** The input string. */
-    public String input;
+    /** The input string (a {@link String}, or another {@link CharSequence}, such as a {@link Utf8Input}). */
+    public CharSequence input;
+
+    /** The parse options. */
+    private final ParseOptions parseOptions;
+
+    /** If true, subclause matches are not recorded (see {@link ParseOptions#recognizeOnly}). */
+    public final boolean recognizeOnly;
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /**
+     * The memo table storage, if {@link ParseOptions#incrementalReparsing} is true, otherwise null. For each clause
+     * and start position at which the clause was matched, it also records the greatest input position examined
+     * while matching the clause, including by all the memo table lookups made by the clause. (Reaching the end of
+     * the input counts as examining position input.length().) For clauses that were looked up at a start position
+     * without ever being matched there, it records the greatest input position that the absence of a match
+     * depends upon (the greatest input position examined while matching the subclauses that would have scheduled
+     * the clause for matching).
+     */
+    private EditableMemoStorage editableMemoStorage;
+
+    /** For each clause, the subclauses that schedule the clause for matching (i.e. the inverse of seed parents). */
+    private Clause[][] seedSubClauses;
+
+    /** Clauses visited by {@link #getUnmatchedMaxReadPos(Clause, int)}, marked with the current visit index. */
+    private int[] clauseVisitIdx;
+
+    /** The index of the current visit of {@link #getUnmatchedMaxReadPos(Clause, int)}. */
+    private int visitIdx;
+
+    /** The start position that clauses are currently being matched at. */
+    private int currStartPos;
+
+    /** The greatest input position examined so far while matching the current clause. */
+    private int currMaxReadPos;
+
+    /** True if {@link #retainOnly(String...)} has been called. */
+    private boolean retainedOnly;
+
+    /**
+     * For each clause index, the sorted start positions of the matches of the clause (null if the clause has no
+     * matches), or null if the index needs to be built (see {@link #getClauseStartPositions(Clause)}). Reset to
+     * null whenever the memo table is modified. Volatile, so that the index is safely published when it is built
+     * by a query on one thread and used by a query on another thread.
+     */
+    private volatile int[][] clauseStartPositionIndex;
+
+    /** An empty array of start positions. */
+    private static final int[] NO_START_POSITIONS = new int[0];
+
+    /**
+     * The start positions at which clauses need to be matched again by {@link Grammar#reparse(MemoTable)}, after
+     * {@link #applyEdit(int, int, String)} has been called.
+     */
+    public BitSet dirtyStartPositions = new BitSet();
+
+    /**
+     * For the start positions in {@link #dirtyStartPositions} at which only some clauses need to be matched again,
+     * the clauses to match. All clauses need to be matched again at the other dirty start positions.
+     */
+    public Map<Integer, List<Clause>> clausesToRematch = new HashMap<>();
 
     // -------------------------------------------------------------------------------------------------------------
 
@@ -71,54 +144,180 @@ public class MemoTable {
 
     // -------------------------------------------------------------------------------------------------------------
 
-    public MemoTable(Grammar grammar, String input) {
+    /**
+     * Create a memo table that uses the given {@link MemoStorage}, which must be empty, and must have been created
+     * for the number of clauses in the grammar and the length of the input. If
+     * {@link ParseOptions#incrementalReparsing} is true, the storage must be an {@link EditableMemoStorage}.
+     */
+    public MemoTable(Grammar grammar, CharSequence input, ParseOptions parseOptions, MemoStorage memoStorage) {
         this.grammar = grammar;
         this.input = input;
+        this.parseOptions = parseOptions;
+        this.recognizeOnly = parseOptions.recognizeOnly;
+        this.memoTable = memoStorage;
+        if (parseOptions.incrementalReparsing) {
+            if (parseOptions.memoStorageStrategy == MemoStorage.Strategy.COMPACT) {
+                throw new IllegalArgumentException("Incremental reparsing is not supported with compact storage");
+            }
+            if (!(memoStorage instanceof EditableMemoStorage)) {
+                throw new IllegalArgumentException("Incremental reparsing requires an EditableMemoStorage");
+            }
+            editableMemoStorage = (EditableMemoStorage) memoStorage;
+            var numClauses = grammar.allClauses.size();
+            var seedSubClauseLists = new ArrayList<List<Clause>>(numClauses);
+            for (int i = 0; i < numClauses; i++) {
+                seedSubClauseLists.add(new ArrayList<>());
+            }
+            for (var clause : grammar.allClauses) {
+                for (var seedParentClause : clause.getSeedParentClauses()) {
+                    seedSubClauseLists.get(seedParentClause.getClauseIdx()).add(clause);
+                }
+            }
+            seedSubClauses = new Clause[numClauses][];
+            for (int i = 0; i < numClauses; i++) {
+                seedSubClauses[i] = seedSubClauseLists.get(i).toArray(new Clause[0]);
+            }
+            clauseVisitIdx = new int[numClauses];
+        }
+    }
+
+    public MemoTable(Grammar grammar, CharSequence input, ParseOptions parseOptions) {
+        this(grammar, input, parseOptions, parseOptions.incrementalReparsing
+                ? new EditableMemoStorage(input.length())
+                : MemoStorage.create(parseOptions.memoStorageStrategy, grammar.allClauses, input.length(),
+                        parseOptions.maxDenseMemoStorageBytes));
+    }
+
+    public MemoTable(Grammar grammar, CharSequence input) {
+        this(grammar, input, new ParseOptions());
     }
 
     // -------------------------------------------------------------------------------------------------------------
 
     /** Look up the current best match for a given {@link MemoKey} in the memo table. */
     public Match lookUpBestMatch(MemoKey memoKey) {
+        return lookUpBestMatch(memoKey.clause, memoKey.startPos);
+    }
+
+    /** Look up the current best match for a given clause and start position in the memo table. */
+    public Match lookUpBestMatch(Clause clause, int startPos) {
         // Find current best match in memo table (null if there is no current best match)
-        var bestMatch = memoTable.get(memoKey);
+        var bestMatch = memoTable.get(clause.getClauseIdx(), startPos);
+
+        // Track the span of the input that the current clause's match depends upon
+        if (editableMemoStorage != null && startPos >= currStartPos) {
+            var lookupMaxReadPos = editableMemoStorage.getMaxReadPos(clause.getClauseIdx(), startPos);
+            if (lookupMaxReadPos < 0) {
+                lookupMaxReadPos = getUnmatchedMaxReadPos(clause, startPos);
+            }
+            if (lookupMaxReadPos > currMaxReadPos) {
+                currMaxReadPos = lookupMaxReadPos;
+            }
+        }
+
         if (bestMatch != null) {
             // If there is a current best match, return it
             return bestMatch;
 
-        } else if (memoKey.clause instanceof NotFollowedBy) {
+        } else if (clause instanceof NotFollowedBy) {
             // Need to match NotFollowedBy top-down
-            return memoKey.clause.match(this, memoKey, input);
+            return clause.match(this, startPos, input);
 
-        } else if (memoKey.clause.canMatchZeroChars) {
+        } else if (clause.canMatchZeroChars()) {
             // If there is no match in the memo table for this clause, but this clause can match zero characters,
             // then we need to return a new zero-length match to the parent clause. (This is part of the strategy
             // for minimizing the number of zero-length matches that are memoized.)
             // (N.B. this match will not have any subclause matches, which may be unexpected, so conversion of
             // parse tree to AST should be robust to this.)
-            return new Match(memoKey);
+            return new Match(new MemoKey(clause, startPos));
         }
         // No match was found in the memo table
         return null;
     }
 
+    /** Get the greatest input position that terminals at a start position may examine. */
+    private int getTerminalMaxReadPos(int startPos) {
+        return Math.min(input.length(), startPos + grammar.maxTerminalLen - 1);
+    }
+
+    /**
+     * Get the greatest input position that the absence of a match of a clause that has never been matched at a
+     * start position depends upon. The clause would only be matched if one of its seed subclauses matched, so this
+     * is the greatest input position examined by those subclauses (or by their own seed subclauses, if they were
+     * never matched either).
+     */
+    private int getUnmatchedMaxReadPos(Clause clause, int startPos) {
+        // Clauses at the current start position may still be matched, so only cache results for later positions
+        var cache = startPos > currStartPos;
+        if (cache) {
+            var cachedMaxReadPos = editableMemoStorage.getUnmatchedMaxReadPos(clause.getClauseIdx(), startPos);
+            if (cachedMaxReadPos >= 0) {
+                return cachedMaxReadPos;
+            }
+        }
+        // Terminals that were never matched examined at most the characters that any terminal can match
+        var result = getTerminalMaxReadPos(startPos);
+        var currVisitIdx = ++visitIdx;
+        var stack = new ArrayDeque<Clause>();
+        stack.push(clause);
+        clauseVisitIdx[clause.getClauseIdx()] = currVisitIdx;
+        while (!stack.isEmpty()) {
+            for (var seedSubClause : seedSubClauses[stack.pop().getClauseIdx()]) {
+                if (clauseVisitIdx[seedSubClause.getClauseIdx()] != currVisitIdx) {
+                    clauseVisitIdx[seedSubClause.getClauseIdx()] = currVisitIdx;
+                    var subClauseMaxReadPos = editableMemoStorage.getMaxReadPos(seedSubClause.getClauseIdx(), startPos);
+                    if (subClauseMaxReadPos < 0) {
+                        stack.push(seedSubClause);
+                    } else if (subClauseMaxReadPos > result) {
+                        result = subClauseMaxReadPos;
+                    }
+                }
+            }
+        }
+        if (cache) {
+            editableMemoStorage.putUnmatchedMaxReadPos(clause.getClauseIdx(), startPos, result);
+        }
+        return result;
+    }
+
+    /** Called before matching clauses at the given start position. */
+    public void startMatchingAt(int startPos) {
+        currStartPos = startPos;
+        if (editableMemoStorage != null) {
+            currMaxReadPos = getTerminalMaxReadPos(startPos);
+        }
+    }
+
     /**
      * Add a new {@link Match} to the memo table, if the match is non-null. Schedule seed parent clauses for
      * matching if the match is non-null or if the parent clause can match zero characters.
      */
-    public void addMatch(MemoKey memoKey, Match newMatch, PriorityQueue<Clause> priorityQueue) {
+    public void addMatch(MemoKey memoKey, Match newMatch, ClauseQueue priorityQueue) {
+        addMatch(memoKey.clause, memoKey.startPos, newMatch, priorityQueue);
+    }
+
+    /**
+     * Add a new {@link Match} for the given clause and start position to the memo table, if the match is
+     * non-null. Schedule seed parent clauses for matching if the match is non-null or if the parent clause can
+     * match zero characters.
+     */
+    public void addMatch(Clause clause, int startPos, Match newMatch, ClauseQueue priorityQueue) {
         var matchUpdated = false;
         if (newMatch != null) {
             // Track memoization
             numMatchObjectsCreated.incrementAndGet();
 
-            // Get the memo entry for memoKey if already present; if not, create a new entry
-            var oldMatch = memoTable.get(memoKey);
+            // Get the memo entry for the clause and start position if already present
+            var oldMatch = memoTable.get(clause.getClauseIdx(), startPos);
 
             // If there is no old match, or the new match is better than the old match
             if ((oldMatch == null || newMatch.isBetterThan(oldMatch))) {
                 // Store the new match in the memo entry
-                memoTable.put(memoKey, newMatch);
+                memoTable.put(clause.getClauseIdx(), startPos, newMatch);
+                if (oldMatch == null && clauseStartPositionIndex != null) {
+                    // The clause has a new start position
+                    clauseStartPositionIndex = null;
+                }
                 matchUpdated = true;
 
                 // Track memoization
@@ -128,12 +327,19 @@ public class MemoTable {
                 }
             }
         }
-        for (int i = 0, ii = memoKey.clause.seedParentClauses.size(); i < ii; i++) {
-            var seedParentClause = memoKey.clause.seedParentClauses.get(i);
+        if (editableMemoStorage != null) {
+            // Track the span of the input examined by this clause (whether or not it matched), then reset for the
+            // next clause
+            editableMemoStorage.putMaxReadPos(clause.getClauseIdx(), startPos, currMaxReadPos);
+            currMaxReadPos = getTerminalMaxReadPos(startPos);
+        }
+        var seedParentClauses = clause.getSeedParentClauses();
+        for (int i = 0; i < seedParentClauses.size(); i++) {
+            var seedParentClause = seedParentClauses.get(i);
             // If there was a valid match, or if there was no match but the parent clause can match
             // zero characters, schedule the parent clause for matching. (This is part of the strategy
             // for minimizing the number of zero-length matches that are memoized.)
-            if (matchUpdated || seedParentClause.canMatchZeroChars) {
+            if (matchUpdated || seedParentClause.canMatchZeroChars()) {
                 priorityQueue.add(seedParentClause);
                 if (Grammar.DEBUG) {
                     System.out.println(
@@ -143,8 +349,161 @@ public class MemoTable {
         }
         if (Grammar.DEBUG) {
             System.out.println(newMatch != null ? "Matched: " + newMatch.toStringWithRuleNames()
-                    : "Failed to match: " + memoKey.toStringWithRuleNames());
+                    : "Failed to match: " + new MemoKey(clause, startPos).toStringWithRuleNames());
+        }
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Replace the oldLen characters of the input starting at start with newText. Memo entries that start after
+     * the replaced characters are shifted to their new start position. If
+     * {@link ParseOptions#incrementalReparsing} is true, memo entries that start before the replaced characters
+     * are kept if matching their clause did not examine the replaced characters; otherwise all memo entries that
+     * start before the replaced characters are dropped. The start positions of dropped memo entries are added to
+     * {@link #dirtyStartPositions} (and the clauses to match again to {@link #clausesToRematch}), so that
+     * {@link Grammar#reparse(MemoTable)} can match clauses at those positions again.
+     * 
+     * <p>
+     * {@link Match} and {@link MemoKey} objects are not modified by an edit: a match obtained from this memo table
+     * before the edit keeps its start position from before the edit. Matches obtained after the edit have their
+     * new start positions. If {@link ParseOptions#incrementalReparsing} is true, the time taken by an edit depends
+     * on the input length and on the number of memo entries that examined the replaced characters, but not on the
+     * total number of memo entries.
+     */
+    public void applyEdit(int start, int oldLen, String newText) {
+        if (retainedOnly) {
+            throw new IllegalStateException("Can't edit the input after retainOnly has been called");
+        }
+        if (!(input instanceof String)) {
+            throw new IllegalStateException("Only String input can be edited");
+        }
+        if (start < 0 || oldLen < 0 || start + oldLen > input.length()) {
+            throw new IllegalArgumentException("Edit range is outside of input: start " + start + ", length "
+                    + oldLen + ", input length " + input.length());
+        }
+        var inputStr = (String) input;
+        var newInput = inputStr.substring(0, start) + newText + inputStr.substring(start + oldLen);
+        var delta = newInput.length() - input.length();
+
+        // Memo entries that start at or after the end of the replaced characters are shifted (except that
+        // matches at start position 0, e.g. of Start, can't be shifted away from position 0)
+        var firstShiftedStartPos = Math.max(start + oldLen, 1);
+
+        // Keep the previously dirty start positions that have not been matched again yet
+        var newDirtyStartPositions = new BitSet(newInput.length() + 1);
+        var newClausesToRematch = new HashMap<Integer, List<Clause>>();
+        for (int startPos = dirtyStartPositions.nextSetBit(0); startPos >= 0; startPos = dirtyStartPositions
+                .nextSetBit(startPos + 1)) {
+            var newStartPos = startPos < start ? startPos
+                    : startPos >= firstShiftedStartPos ? startPos + delta : -1;
+            if (newStartPos >= 0) {
+                newDirtyStartPositions.set(newStartPos);
+                var clauses = clausesToRematch.get(startPos);
+                if (clauses != null) {
+                    newClausesToRematch.put(newStartPos, clauses);
+                }
+            }
+        }
+
+        // Drop the memo entries that start before the replaced characters and that examined them
+        int removedStartPos;
+        if (editableMemoStorage != null) {
+            removedStartPos = start;
+            editableMemoStorage.removeEntriesThatExamined(start, (clauseIdx, startPos) -> addClauseToRematch(
+                    grammar.allClauses.get(clauseIdx), startPos, newDirtyStartPositions, newClausesToRematch));
+            // Terminals that did not match just before the replaced characters may match now
+            for (int startPos = Math.max(0, start - grammar.maxTerminalLen + 1); startPos < start; startPos++) {
+                var c = input.charAt(startPos);
+                for (var terminal : grammar.firstCharDispatch.getTerminals(c)) {
+                    addClauseToRematch(terminal, startPos, newDirtyStartPositions, newClausesToRematch);
+                }
+                for (var charSeq : grammar.firstCharDispatch.getCharSeqs(c)) {
+                    addClauseToRematch(charSeq, startPos, newDirtyStartPositions, newClausesToRematch);
+                }
+            }
+        } else {
+            removedStartPos = 0;
+            newDirtyStartPositions.set(0, start);
+            newClausesToRematch.keySet().removeIf(startPos -> startPos < start);
+        }
+
+        // Move the memo entries after the replaced characters to their new start positions. The matches themselves
+        // are not modified: the storage returns shifted views of them (see ShiftedMatch).
+        memoTable.applyEdit(removedStartPos, firstShiftedStartPos, delta, newInput.length());
+        clauseStartPositionIndex = null;
+
+        // All clauses need to be matched at the start positions of the new text
+        newDirtyStartPositions.set(start, firstShiftedStartPos + delta);
+        newDirtyStartPositions.clear(newInput.length());
+        newClausesToRematch.keySet()
+                .removeIf(startPos -> startPos >= start && startPos < firstShiftedStartPos + delta
+                        || startPos >= newInput.length());
+        dirtyStartPositions = newDirtyStartPositions;
+        clausesToRematch = newClausesToRematch;
+        input = newInput;
+    }
+
+    /**
+     * Add a clause to the clauses to match again at a start position, unless all clauses already need to be
+     * matched again at that start position.
+     */
+    private static void addClauseToRematch(Clause clause, int startPos, BitSet dirtyStartPositions,
+            Map<Integer, List<Clause>> clausesToRematch) {
+        var clauses = clausesToRematch.get(startPos);
+        if (clauses == null) {
+            if (dirtyStartPositions.get(startPos)) {
+                return;
+            }
+            dirtyStartPositions.set(startPos);
+            clausesToRematch.put(startPos, clauses = new ArrayList<>());
         }
+        clauses.add(clause);
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Discard all matches except the nonoverlapping matches of the named rules (see
+     * {@link #getNonOverlappingMatches(Clause)}) and their descendant matches, i.e. their parse trees, so that a
+     * memo table that is kept after parsing uses less memory. Queries of the named rules, including
+     * {@link #getSyntaxErrors(String...)} with the named rules as coverage rules, return the same results as
+     * before. The input can't be edited afterwards. The memo table no longer shares storage with any
+     * {@link pikaparser.grammar.ParseContext} that it was parsed with.
+     */
+    public void retainOnly(String... ruleNames) {
+        // Find the retained matches in preorder
+        var retainedMatches = new ArrayList<Match>();
+        var stack = new ArrayDeque<Match>();
+        for (var ruleName : ruleNames) {
+            for (var match : getNonOverlappingMatches(grammar.getRule(ruleName).labeledClause.clause)) {
+                stack.push(match);
+                while (!stack.isEmpty()) {
+                    var curr = stack.pop();
+                    retainedMatches.add(curr);
+                    var subClauseMatches = curr.getSubClauseMatchArray();
+                    for (int i = subClauseMatches.length - 1; i >= 0; --i) {
+                        stack.push(subClauseMatches[i]);
+                    }
+                }
+            }
+        }
+        // Store the retained matches in new storage, in reverse preorder, so that descendant matches are stored
+        // before the matches that contain them (which allows compact storage to share their entries)
+        var retainedMemoTable = MemoStorage.create(
+                memoTable instanceof CompactMemoStorage ? MemoStorage.Strategy.COMPACT
+                        : MemoStorage.Strategy.SPARSE,
+                grammar.allClauses, retainedMatches.size(), parseOptions.maxDenseMemoStorageBytes);
+        for (int i = retainedMatches.size() - 1; i >= 0; --i) {
+            var match = retainedMatches.get(i);
+            retainedMemoTable.put(match.memoKey.clause.getClauseIdx(), match.memoKey.startPos, match);
+        }
+        memoTable = retainedMemoTable;
+        clauseStartPositionIndex = null;
+        retainedOnly = true;
+        editableMemoStorage = null;
+        dirtyStartPositions.clear();
+        clausesToRematch.clear();
     }
 
     // -------------------------------------------------------------------------------------------------------------
@@ -152,7 +511,7 @@ public class MemoTable {
     /** Get all {@link Match} entries, indexed by clause then start position. */
     public Map<Clause, NavigableMap<Integer, Match>> getAllNavigableMatches() {
         var clauseMap = new HashMap<Clause, NavigableMap<Integer, Match>>();
-        memoTable.values().stream().forEach(match -> {
+        memoTable.forEach(match -> {
             var startPosMap = clauseMap.get(match.memoKey.clause);
             if (startPosMap == null) {
                 startPosMap = new TreeMap<>();
@@ -185,21 +544,63 @@ public class MemoTable {
         return nonOverlappingClauseMap;
     }
 
+    /**
+     * Get the sorted start positions of the matches of the given clause, from the index of start positions by
+     * clause, building the index if the memo table has been modified since it was last built. (Building the index
+     * takes a single pass over the memo table, after which queries for any clause take time proportional to the
+     * number of matches of the clause.) If several threads query the memo table at once, each may build the
+     * index, but they build the same index.
+     */
+    private int[] getClauseStartPositions(Clause clause) {
+        var index = clauseStartPositionIndex;
+        if (index == null) {
+            // Count the matches of each clause, then fill in and sort the start positions of each clause
+            var numClauses = grammar.allClauses.size();
+            var numMatches = new int[numClauses];
+            memoTable.forEach(match -> numMatches[match.memoKey.clause.getClauseIdx()]++);
+            var newIndex = new int[numClauses][];
+            for (int i = 0; i < numClauses; i++) {
+                if (numMatches[i] > 0) {
+                    newIndex[i] = new int[numMatches[i]];
+                    numMatches[i] = 0;
+                }
+            }
+            memoTable.forEach(match -> {
+                var clauseIdx = match.memoKey.clause.getClauseIdx();
+                newIndex[clauseIdx][numMatches[clauseIdx]++] = match.memoKey.startPos;
+            });
+            for (var startPositions : newIndex) {
+                if (startPositions != null) {
+                    Arrays.sort(startPositions);
+                }
+            }
+            clauseStartPositionIndex = index = newIndex;
+        }
+        var startPositions = index[clause.getClauseIdx()];
+        return startPositions == null ? NO_START_POSITIONS : startPositions;
+    }
+
+    /** Get the start positions of all matches of the given clause, in increasing order. */
+    public int[] getMatchStartPositions(Clause clause) {
+        return getClauseStartPositions(clause).clone();
+    }
+
     /** Get all {@link Match} entries for the given clause, indexed by start position. */
     public NavigableMap<Integer, Match> getNavigableMatches(Clause clause) {
         var treeMap = new TreeMap<Integer, Match>();
-        memoTable.entrySet().stream().forEach(ent -> {
-            if (ent.getKey().clause == clause) {
-                treeMap.put(ent.getKey().startPos, ent.getValue());
-            }
-        });
+        for (var startPos : getClauseStartPositions(clause)) {
+            treeMap.put(startPos, memoTable.get(clause.getClauseIdx(), startPos));
+        }
         return treeMap;
     }
 
     /** Get the {@link Match} entries for all matches of this clause. */
     public List<Match> getAllMatches(Clause clause) {
-        var matches = new ArrayList<Match>();
-        getNavigableMatches(clause).entrySet().stream().forEach(ent -> matches.add(ent.getValue()));
+        var startPositions = getClauseStartPositions(clause);
+        var matches = new ArrayList<Match>(startPositions.length);
+        for (var startPos : startPositions) {
+            matches.add(memoTable.get(clause.getClauseIdx(), startPos));
+        }
         return matches;
     }
 
@@ -208,15 +609,13 @@ public class MemoTable {
      * from the beginning of the string, then looking for the next match after the end of the current match.
      */
     public List<Match> getNonOverlappingMatches(Clause clause) {
-        var matches = getAllMatches(clause);
         var nonoverlappingMatches = new ArrayList<Match>();
-        for (int i = 0; i < matches.size(); i++) {
-            var match = matches.get(i);
-            var startPos = match.memoKey.startPos;
-            var endPos = startPos + match.len;
-            nonoverlappingMatches.add(match);
-            while (i < matches.size() - 1 && matches.get(i + 1).memoKey.startPos < endPos) {
-                i++;
+        var prevEndPos = 0;
+        for (var startPos : getClauseStartPositions(clause)) {
+            if (startPos >= prevEndPos) {
+                var match = memoTable.get(clause.getClauseIdx(), startPos);
+                nonoverlappingMatches.add(match);
+                prevEndPos = startPos + match.len;
             }
         }
         return nonoverlappingMatches;
@@ -240,7 +639,7 @@ public class MemoTable {
         // Extract the input string span for each unparsed range
         var syntaxErrorSpans = new TreeMap<Integer, Entry<Integer, String>>();
         unparsedRanges.entrySet().stream().forEach(ent -> syntaxErrorSpans.put(ent.getKey(),
-                new SimpleEntry<>(ent.getValue(), input.substring(ent.getKey(), ent.getValue()))));
+                new SimpleEntry<>(ent.getValue(), input.subSequence(ent.getKey(), ent.getValue()).toString())));
         return syntaxErrorSpans;
     }
 }
@@ -0,0 +1,81 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.memotable;
+
+/**
+ * A {@link Match} that is a view of a memo entry that was moved to a new start position by an edit of the input
+ * (see {@link MemoTable#applyEdit(int, int, String)}). The match that was memoized is not modified, so its
+ * {@link MemoKey} keeps its start position from before the edit. The subclause matches are shifted by the same
+ * amount, and are only created when they are first requested.
+ */
+class ShiftedMatch extends Match {
+    /** The match that was memoized, with its start position from before the edit. */
+    final Match shiftedMatch;
+
+    /** The shifted subclause matches, or null if they have not been requested yet. */
+    private Match[] shiftedSubClauseMatches;
+
+    private ShiftedMatch(Match shiftedMatch, int startPos) {
+        super(new MemoKey(shiftedMatch.memoKey.clause, startPos), shiftedMatch.len,
+                shiftedMatch.firstMatchingSubClauseIdx, /* subClauseMatches = */ null);
+        this.shiftedMatch = shiftedMatch;
+    }
+
+    /**
+     * Get a view of the match at the given start position, or the match itself if it already starts at the given
+     * start position.
+     */
+    static Match shift(Match match, int startPos) {
+        if (match.memoKey.startPos == startPos) {
+            return match;
+        }
+        return new ShiftedMatch(match instanceof ShiftedMatch ? ((ShiftedMatch) match).shiftedMatch : match,
+                startPos);
+    }
+
+    @Override
+    Match[] getSubClauseMatchArray() {
+        if (shiftedSubClauseMatches == null) {
+            var subClauseMatches = shiftedMatch.getSubClauseMatchArray();
+            if (subClauseMatches.length == 0) {
+                // Keep the identity of NO_SUBCLAUSE_MATCHES and SUBCLAUSE_MATCHES_NOT_RECORDED
+                shiftedSubClauseMatches = subClauseMatches;
+            } else {
+                var delta = memoKey.startPos - shiftedMatch.memoKey.startPos;
+                var shifted = new Match[subClauseMatches.length];
+                for (int i = 0; i < subClauseMatches.length; i++) {
+                    shifted[i] = shift(subClauseMatches[i], subClauseMatches[i].memoKey.startPos + delta);
+                }
+                shiftedSubClauseMatches = shifted;
+            }
+        }
+        return shiftedSubClauseMatches;
+    }
+}
@@ -0,0 +1,242 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.memotable;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import pikaparser.clause.Clause;
+
+/**
+ * An open-addressing hash table mapping from ({@link Clause#getClauseIdx()}, startPos) to {@link Match}. The
+ * clause index and start position are packed into a single primitive long key, and linear probing is used to
+ * resolve collisions, so no {@link MemoKey} or hash node objects need to be allocated per memo entry.
+ */
+public class SparseMemoStorage implements MemoStorage {
+    /** Key value used to mark an empty slot (a clauseIdx of -1 cannot occur). */
+    static final long EMPTY_KEY = -1L;
+
+    /** The maximum fraction of slots that may be in use before the table is grown. */
+    static final double MAX_LOAD_FACTOR = 0.5;
+
+    /** The packed (clauseIdx, startPos) keys. */
+    private long[] keys;
+
+    /** The matches, at the same slot index as the corresponding key. */
+    private Match[] values;
+
+    /** The number of entries in the table. */
+    private int size;
+
+    /** The number of entries that will cause the table to be grown. */
+    private int resizeThreshold;
+
+    public SparseMemoStorage(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Pack a clause index and start position into a long key. */
+    static long key(int clauseIdx, int startPos) {
+        return ((long) clauseIdx << 32) | (startPos & 0xffffffffL);
+    }
+
+    /** Find the slot index to start probing from for a given key. */
+    static int hash(long key, int mask) {
+        // Mix bits of both the clause index and the start position (finalizer from MurmurHash3)
+        var h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    /** Get the power-of-two table size needed to hold the expected number of entries. */
+    static int tableSizeFor(int expectedSize) {
+        var minSize = (long) Math.ceil(Math.max(expectedSize, 8) / MAX_LOAD_FACTOR);
+        var tableSize = Long.highestOneBit(minSize - 1) << 1;
+        if (tableSize > 1 << 30) {
+            throw new IllegalArgumentException("Memo table too large");
+        }
+        return (int) tableSize;
+    }
+
+    /** Allocate empty key and value arrays. */
+    private void allocate(int tableSize) {
+        keys = new long[tableSize];
+        Arrays.fill(keys, EMPTY_KEY);
+        values = new Match[tableSize];
+        resizeThreshold = (int) (tableSize * MAX_LOAD_FACTOR);
+    }
+
+    /** Double the size of the table, and rehash all entries. */
+    private void grow() {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(oldKeys.length * 2);
+        var mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            var key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                var slot = hash(key, mask);
+                while (keys[slot] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public Match get(int clauseIdx, int startPos) {
+        var key = key(clauseIdx, startPos);
+        var mask = keys.length - 1;
+        for (var slot = hash(key, mask);; slot = (slot + 1) & mask) {
+            var slotKey = keys[slot];
+            if (slotKey == key) {
+                return values[slot];
+            } else if (slotKey == EMPTY_KEY) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public Match put(int clauseIdx, int startPos, Match match) {
+        var key = key(clauseIdx, startPos);
+        var mask = keys.length - 1;
+        var slot = hash(key, mask);
+        for (;; slot = (slot + 1) & mask) {
+            var slotKey = keys[slot];
+            if (slotKey == key) {
+                var oldMatch = values[slot];
+                values[slot] = match;
+                return oldMatch;
+            } else if (slotKey == EMPTY_KEY) {
+                break;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = match;
+        if (++size > resizeThreshold) {
+            grow();
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<Match> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Match remove(int clauseIdx, int startPos) {
+        var key = key(clauseIdx, startPos);
+        var mask = keys.length - 1;
+        var slot = hash(key, mask);
+        for (;; slot = (slot + 1) & mask) {
+            var slotKey = keys[slot];
+            if (slotKey == key) {
+                break;
+            } else if (slotKey == EMPTY_KEY) {
+                return null;
+            }
+        }
+        var oldMatch = values[slot];
+        // Move later entries in the same probe sequence back into the emptied slot, so that lookups of those
+        // entries don't stop early at an empty slot
+        var gap = slot;
+        for (var next = (gap + 1) & mask; keys[next] != EMPTY_KEY; next = (next + 1) & mask) {
+            var home = hash(keys[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY_KEY;
+        values[gap] = null;
+        size--;
+        return oldMatch;
+    }
+
+    @Override
+    public void applyEdit(int removedStartPos, int firstShiftedStartPos, int delta, int newInputLength) {
+        // Rehash all remaining entries, since their keys may change
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(oldKeys.length);
+        size = 0;
+        var mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            var oldKey = oldKeys[i];
+            if (oldKey != EMPTY_KEY) {
+                var clauseIdx = (int) (oldKey >>> 32);
+                var startPos = (int) oldKey;
+                if (startPos < removedStartPos || startPos >= firstShiftedStartPos) {
+                    var newStartPos = startPos >= firstShiftedStartPos ? startPos + delta : startPos;
+                    var key = key(clauseIdx, newStartPos);
+                    var slot = hash(key, mask);
+                    while (keys[slot] != EMPTY_KEY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                    values[slot] = ShiftedMatch.shift(oldValues[i], newStartPos);
+                    size++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear(int expectedSize) {
+        var tableSize = tableSizeFor(expectedSize);
+        if (tableSize > keys.length) {
+            allocate(tableSize);
+        } else if (size > 0) {
+            Arrays.fill(keys, EMPTY_KEY);
+            Arrays.fill(values, null);
+        }
+        size = 0;
+    }
+}
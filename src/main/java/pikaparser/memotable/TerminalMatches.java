@@ -0,0 +1,148 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.memotable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import pikaparser.clause.Clause;
+import pikaparser.clause.terminal.Terminal;
+
+/**
+ * The matches of {@link Terminal} clauses at every input position, found before the main parsing loop runs, e.g.
+ * so that terminals can be matched in parallel across chunks of the input.
+ */
+public class TerminalMatches {
+    /**
+     * The index in {@link #matches} of the first match at each start position (with one extra element at the end,
+     * so that the matches at startPos are in the range [startPosToMatchIdx[startPos], startPosToMatchIdx[startPos
+     * + 1]).
+     */
+    private final int[] startPosToMatchIdx;
+
+    /** The terminal matches, ordered by start position. */
+    private final Match[] matches;
+
+    /** The minimum number of input positions matched by each task. */
+    private static final int MIN_CHUNK_SIZE = 4096;
+
+    /** Match all terminals at every position in the input, using the given {@link ForkJoinPool}. */
+    public TerminalMatches(List<Clause> terminals, MemoTable memoTable, CharSequence input, ForkJoinPool pool) {
+        var inputLength = input.length();
+        var numChunks = Math.max(1,
+                Math.min(pool.getParallelism() * 4, (inputLength + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE));
+        var chunkSize = (inputLength + numChunks - 1) / Math.max(1, numChunks);
+
+        // Match terminals in each chunk of the input in parallel. Each task writes only to its own range of
+        // numMatchesAtStartPos, and to its own element of chunkMatches.
+        var numMatchesAtStartPos = new int[inputLength + 1];
+        var chunkMatches = new ArrayList<List<Match>>(Collections.nCopies(numChunks, null));
+        var tasks = new ArrayList<ForkJoinTask<?>>(numChunks);
+        for (int i = 0; i < numChunks; i++) {
+            var chunkIdx = i;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                var chunkStart = chunkIdx * chunkSize;
+                var chunkEnd = Math.min(inputLength, chunkStart + chunkSize);
+                var matchesInChunk = new ArrayList<Match>();
+                for (int startPos = chunkStart; startPos < chunkEnd; startPos++) {
+                    var numMatches = 0;
+                    for (int j = 0, jj = terminals.size(); j < jj; j++) {
+                        var terminal = terminals.get(j);
+                        var match = terminal.match(memoTable, startPos, input);
+                        if (match != null) {
+                            matchesInChunk.add(match);
+                            numMatches++;
+                        }
+                    }
+                    numMatchesAtStartPos[startPos] = numMatches;
+                }
+                chunkMatches.set(chunkIdx, matchesInChunk);
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        // Concatenate the matches of all chunks, and index them by start position
+        var numMatches = 0;
+        startPosToMatchIdx = new int[inputLength + 1];
+        for (int startPos = 0; startPos < inputLength; startPos++) {
+            startPosToMatchIdx[startPos] = numMatches;
+            numMatches += numMatchesAtStartPos[startPos];
+        }
+        startPosToMatchIdx[inputLength] = numMatches;
+        matches = new Match[numMatches];
+        var matchIdx = 0;
+        for (var matchesInChunk : chunkMatches) {
+            for (var match : matchesInChunk) {
+                matches[matchIdx++] = match;
+            }
+        }
+    }
+
+    /** Index the given terminal matches, which may be in any order, by start position. */
+    public TerminalMatches(int inputLength, List<Match> matches) {
+        startPosToMatchIdx = new int[inputLength + 1];
+        for (var match : matches) {
+            startPosToMatchIdx[match.memoKey.startPos]++;
+        }
+        var numMatches = 0;
+        for (int startPos = 0; startPos <= inputLength; startPos++) {
+            var numMatchesAtStartPos = startPosToMatchIdx[startPos];
+            startPosToMatchIdx[startPos] = numMatches;
+            numMatches += numMatchesAtStartPos;
+        }
+        this.matches = new Match[numMatches];
+        var nextMatchIdx = new int[inputLength];
+        for (var match : matches) {
+            var startPos = match.memoKey.startPos;
+            this.matches[startPosToMatchIdx[startPos] + nextMatchIdx[startPos]++] = match;
+        }
+    }
+
+    /** Add the terminals that matched at the given start position to the priority queue. */
+    public void addMatchedTerminals(int startPos, ClauseQueue priorityQueue) {
+        for (int i = startPosToMatchIdx[startPos], ii = startPosToMatchIdx[startPos + 1]; i < ii; i++) {
+            priorityQueue.add(matches[i].memoKey.clause);
+        }
+    }
+
+    /** Get the match of the given terminal at the given start position, or null if it did not match. */
+    public Match get(Clause terminal, int startPos) {
+        for (int i = startPosToMatchIdx[startPos], ii = startPosToMatchIdx[startPos + 1]; i < ii; i++) {
+            var match = matches[i];
+            if (match.memoKey.clause == terminal) {
+                return match;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,580 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.parser.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import pikaparser.ast.LabeledClause;
+import pikaparser.clause.Clause;
+import pikaparser.clause.aux.ASTNodeLabel;
+import pikaparser.clause.aux.RuleRef;
+import pikaparser.clause.nonterminal.First;
+import pikaparser.clause.nonterminal.FollowedBy;
+import pikaparser.clause.nonterminal.NotFollowedBy;
+import pikaparser.clause.nonterminal.OneOrMore;
+import pikaparser.clause.nonterminal.Seq;
+import pikaparser.clause.terminal.CharSeq;
+import pikaparser.clause.terminal.CharSeqTrie;
+import pikaparser.clause.terminal.CharSet;
+import pikaparser.clause.terminal.Nothing;
+import pikaparser.clause.terminal.Start;
+import pikaparser.grammar.Rule;
+
+/**
+ * Rewrites the alternatives of {@link First} clauses so that fewer clauses need to be matched, while preserving
+ * ordered choice semantics:
+ * 
+ * <ul>
+ * <li>Adjacent {@link CharSet} alternatives are merged into a single {@link CharSet}.
+ * <li>Adjacent case-sensitive {@link CharSeq} alternatives (and single-char {@link CharSet} alternatives next to
+ * them) are merged into a {@link CharSeqTrie}.
+ * <li>Adjacent {@link Seq} alternatives that start with the same subclause are left-factored, i.e. {@code (a b) /
+ * (a c)} is rewritten to {@code a (b / c)}.
+ * </ul>
+ * 
+ * <p>
+ * Alternatives with an AST node label are never rewritten, so the AST is unchanged. A {@link First} clause that is
+ * left with a single alternative is replaced by that alternative.
+ * 
+ * <p>
+ * A second pass removes clauses that each add a memo entry per match without doing any useful work:
+ * 
+ * <ul>
+ * <li>An unlabeled {@link Seq} (or {@link First}) subclause of a {@link Seq} (or {@link First}) clause that has no
+ * other parent and is not the toplevel clause of a rule is inlined into the parent clause, i.e. {@code a (b c)} is
+ * rewritten to {@code a b c}, and {@code a / (b / c)} to {@code a / b / c}.
+ * <li>Repeated alternatives of a {@link First} clause, which can never match, are removed.
+ * <li>{@code (X+)+} is rewritten to {@code X+}, and {@code &(&X)} and {@code &(!X)} to {@code &X} and {@code !X}.
+ * </ul>
+ * 
+ * <p>
+ * Both passes are only run if the grammar is constructed with optimize set to true (see
+ * {@link pikaparser.grammar.Grammar#Grammar(List, boolean)}). They run after the clauses have been interned by
+ * {@link GrammarUtils#intern(Clause, Map)}, but before {@link RuleRef}s are resolved, so that the grammar is still
+ * a DAG, and so that the toString() value of new clauses refers to rules by name.
+ */
+public class GrammarOptimizer {
+    private final Map<String, Rule> ruleNameToRule;
+    private final Map<String, String> ruleNameToLowestPrecedenceLevelRuleName;
+    private final Map<String, Clause> toStringToClause;
+
+    /** The optimized version of each clause that has been visited. */
+    private final Map<Clause, Clause> optimizedClause = new IdentityHashMap<>();
+
+    /** Clauses that are currently being optimized. */
+    private final Set<Clause> inProgress = newIdentitySet();
+
+    /** Clauses whose subclauses were replaced in-place, so whose toString() value changed. */
+    private final Set<Clause> modifiedInPlace = newIdentitySet();
+
+    /** Whether each rule can match zero characters. */
+    private final Map<String, Boolean> ruleCanMatchZeroChars = new HashMap<>();
+
+    /** Whether each clause can match zero characters (valid once {@link #ruleCanMatchZeroChars} is complete). */
+    private final Map<Clause, Boolean> clauseCanMatchZeroChars = new IdentityHashMap<>();
+
+    /** If true, this is the pass that inlines single-use clauses, otherwise it is the pass that optimizes First. */
+    private final boolean inlineSingleUseClauses;
+
+    /** The number of parent clauses and rules that refer to each clause (only used if inlining). */
+    private final Map<Clause, Integer> numUses = new IdentityHashMap<>();
+
+    private GrammarOptimizer(Map<String, Rule> ruleNameToRule,
+            Map<String, String> ruleNameToLowestPrecedenceLevelRuleName, Map<String, Clause> toStringToClause,
+            boolean inlineSingleUseClauses) {
+        this.ruleNameToRule = ruleNameToRule;
+        this.ruleNameToLowestPrecedenceLevelRuleName = ruleNameToLowestPrecedenceLevelRuleName;
+        this.toStringToClause = toStringToClause;
+        this.inlineSingleUseClauses = inlineSingleUseClauses;
+    }
+
+    /**
+     * Optimize the alternatives of {@link First} clauses in all rules, replacing the toplevel clause of any rule
+     * whose toplevel clause is rewritten, and interning any new clauses in toStringToClause. Any clause in
+     * lowestPrecedenceClauses that is rewritten is also replaced.
+     */
+    public static void optimize(List<Rule> allRules, List<Clause> lowestPrecedenceClauses,
+            Map<String, Rule> ruleNameToRule, Map<String, String> ruleNameToLowestPrecedenceLevelRuleName,
+            Map<String, Clause> toStringToClause) {
+        new GrammarOptimizer(ruleNameToRule, ruleNameToLowestPrecedenceLevelRuleName, toStringToClause,
+                /* inlineSingleUseClauses = */ false).run(allRules, lowestPrecedenceClauses);
+    }
+
+    /**
+     * Inline single-use clauses into their parent clauses and collapse redundant clauses in all rules, in the same
+     * way as {@link #optimize(List, List, Map, Map, Map)}.
+     */
+    public static void inlineSingleUseClauses(List<Rule> allRules, List<Clause> lowestPrecedenceClauses,
+            Map<String, Rule> ruleNameToRule, Map<String, String> ruleNameToLowestPrecedenceLevelRuleName,
+            Map<String, Clause> toStringToClause) {
+        new GrammarOptimizer(ruleNameToRule, ruleNameToLowestPrecedenceLevelRuleName, toStringToClause,
+                /* inlineSingleUseClauses = */ true).run(allRules, lowestPrecedenceClauses);
+    }
+
+    /** Run the pass on all rules. */
+    private void run(List<Rule> allRules, List<Clause> lowestPrecedenceClauses) {
+        findRulesThatCanMatchZeroChars(allRules);
+        if (inlineSingleUseClauses) {
+            var visited = newIdentitySet();
+            for (var rule : allRules) {
+                countUses(rule.labeledClause.clause, visited);
+            }
+        }
+        for (var rule : allRules) {
+            var clause = rule.labeledClause.clause;
+            var optimized = optimize(clause);
+            if (optimized != clause) {
+                clause.unregisterRule(rule);
+                optimized.registerRule(rule);
+                rule.labeledClause.clause = optimized;
+            }
+        }
+        lowestPrecedenceClauses.replaceAll(clause -> optimizedClause.getOrDefault(clause, clause));
+    }
+
+    /** Count the uses of a clause (called once per use), and the uses of its subclauses (once per clause). */
+    private void countUses(Clause clause, Set<Clause> visited) {
+        numUses.merge(clause, 1, Integer::sum);
+        if (visited.add(clause)) {
+            for (var labeledSubClause : clause.labeledSubClauses) {
+                countUses(labeledSubClause.clause, visited);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Find which rules can match zero characters, by iterating until there are no more changes. */
+    private void findRulesThatCanMatchZeroChars(List<Rule> allRules) {
+        for (var changed = true; changed;) {
+            changed = false;
+            clauseCanMatchZeroChars.clear();
+            for (var rule : allRules) {
+                if (canMatchZeroChars(rule.labeledClause.clause)
+                        && ruleCanMatchZeroChars.put(rule.ruleName, true) == null) {
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /** Look up the rule referred to by a {@link RuleRef}, or return null if there is no such rule. */
+    private Rule getRefdRule(RuleRef ruleRef) {
+        var refdRuleName = ruleRef.refdRuleName;
+        var lowestPrecRuleName = ruleNameToLowestPrecedenceLevelRuleName.get(refdRuleName);
+        return ruleNameToRule.get(lowestPrecRuleName == null ? refdRuleName : lowestPrecRuleName);
+    }
+
+    /** Return true if the clause can match zero characters (mirrors determineWhetherCanMatchZeroChars()). */
+    private boolean canMatchZeroChars(Clause clause) {
+        var cached = clauseCanMatchZeroChars.get(clause);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result;
+        if (clause instanceof RuleRef) {
+            var refdRule = getRefdRule((RuleRef) clause);
+            // Unknown rule names are reported when RuleRefs are resolved
+            result = refdRule != null && ruleCanMatchZeroChars.containsKey(refdRule.ruleName);
+        } else if (clause instanceof Seq) {
+            result = true;
+            for (var labeledSubClause : clause.labeledSubClauses) {
+                result &= canMatchZeroChars(labeledSubClause.clause);
+            }
+        } else if (clause instanceof First) {
+            result = false;
+            for (var labeledSubClause : clause.labeledSubClauses) {
+                result |= canMatchZeroChars(labeledSubClause.clause);
+            }
+        } else if (clause instanceof OneOrMore) {
+            result = canMatchZeroChars(clause.labeledSubClauses[0].clause);
+        } else if (clause instanceof CharSeq) {
+            result = ((CharSeq) clause).str.isEmpty();
+        } else {
+            result = clause instanceof FollowedBy || clause instanceof NotFollowedBy || clause instanceof Nothing
+                    || clause instanceof Start;
+        }
+        clauseCanMatchZeroChars.put(clause, result);
+        return result;
+    }
+
+    /** Return true if target can be reached from clause, following {@link RuleRef}s. */
+    private boolean canReach(Clause clause, Clause target, Set<Clause> visited) {
+        if (clause == target) {
+            return true;
+        }
+        if (!visited.add(clause)) {
+            return false;
+        }
+        if (clause instanceof RuleRef) {
+            var refdRule = getRefdRule((RuleRef) clause);
+            return refdRule != null && canReach(refdRule.labeledClause.clause, target, visited);
+        }
+        for (var labeledSubClause : clause.labeledSubClauses) {
+            if (canReach(labeledSubClause.clause, target, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Intern a new clause, returning the equivalent existing clause (optimizing it first) if there is one, or the
+     * clause itself if not.
+     */
+    private Clause intern(Clause clause) {
+        var prevInternedClause = toStringToClause.putIfAbsent(clause.toString(), clause);
+        if (prevInternedClause == null || prevInternedClause == clause
+                // Only possible in pathological cases, but an existing clause that is still being optimized can't
+                // be used, since it may yet be replaced
+                || inProgress.contains(prevInternedClause)) {
+            return clause;
+        }
+        return optimize(prevInternedClause);
+    }
+
+    /** Optimize a clause, after optimizing its subclauses, bottom-up. */
+    private Clause optimize(Clause clause) {
+        var optimized = optimizedClause.get(clause);
+        if (optimized != null) {
+            return optimized;
+        }
+        inProgress.add(clause);
+        var subClausesChanged = false;
+        for (var labeledSubClause : clause.labeledSubClauses) {
+            var subClause = optimize(labeledSubClause.clause);
+            if (subClause != labeledSubClause.clause || modifiedInPlace.contains(subClause)) {
+                labeledSubClause.clause = subClause;
+                subClausesChanged = true;
+            }
+        }
+        optimized = clause;
+        if (subClausesChanged) {
+            // The toString() value of the clause has changed, so it needs to be re-interned
+            toStringToClause.remove(clause.toString(), clause);
+            clause.clearToStringCache();
+            modifiedInPlace.add(clause);
+            optimized = intern(clause);
+        }
+        if (inlineSingleUseClauses) {
+            optimized = inlineSubClauses(optimized, /* origClause = */ clause);
+            if (optimized != clause) {
+                // The parents of the clause are now parents of the clause that replaces it
+                numUses.merge(optimized, numUses.getOrDefault(clause, 0), Integer::sum);
+            }
+        } else if (optimized instanceof First) {
+            optimized = optimizeFirst((First) optimized, /* origClause = */ clause);
+        }
+        inProgress.remove(clause);
+        optimizedClause.put(clause, optimized);
+        return optimized;
+    }
+
+    /**
+     * Optimize the alternatives of a {@link First} clause whose subclauses have already been optimized. If
+     * origClause is non-null, it is the clause that first was derived from, which is referenced by the rest of the
+     * grammar until optimization is complete.
+     */
+    private Clause optimizeFirst(First first, Clause origClause) {
+        var alternatives = new ArrayList<>(Arrays.asList(first.labeledSubClauses));
+        var changed = mergeCharSets(alternatives);
+        changed |= mergeTokens(alternatives);
+        changed |= leftFactor(alternatives, first, origClause);
+        if (!changed) {
+            return first;
+        }
+        if (alternatives.size() == 1) {
+            // Alternatives are only merged if they have no AST node label, so the merged alternative doesn't
+            // need one
+            return alternatives.get(0).clause;
+        }
+        return intern(new First(toClauses(alternatives)));
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Convert {@link LabeledClause}s back into clauses, wrapping labeled clauses in {@link ASTNodeLabel}. */
+    private static Clause[] toClauses(List<LabeledClause> labeledClauses) {
+        var clauses = new Clause[labeledClauses.size()];
+        for (int i = 0; i < clauses.length; i++) {
+            var labeledClause = labeledClauses.get(i);
+            clauses[i] = labeledClause.astNodeLabel == null ? labeledClause.clause
+                    : new ASTNodeLabel(labeledClause.astNodeLabel, labeledClause.clause);
+        }
+        return clauses;
+    }
+
+    /** Return the single char matched by a {@link CharSet}, or -1 if it can match more than one char. */
+    private static int getSingleChar(CharSet charSet) {
+        var charRanges = charSet.getCharRanges();
+        return charSet.getInvertedCharRanges() == null && charRanges != null && charRanges.length == 2
+                && charRanges[0] == charRanges[1] ? charRanges[0] : -1;
+    }
+
+    /** Return true if the alternative can be merged into a {@link CharSeqTrie}. */
+    private static boolean isToken(LabeledClause alternative) {
+        return alternative.astNodeLabel == null && (alternative.clause instanceof CharSeq
+                && !((CharSeq) alternative.clause).ignoreCase && !((CharSeq) alternative.clause).str.isEmpty()
+                || alternative.clause instanceof CharSet && getSingleChar((CharSet) alternative.clause) != -1);
+    }
+
+    /**
+     * Merge runs of adjacent unlabeled {@link CharSet} alternatives (all of which match exactly one char, so their
+     * order doesn't matter). Returns true if anything was merged.
+     */
+    private boolean mergeCharSets(List<LabeledClause> alternatives) {
+        var changed = false;
+        for (int i = 0; i < alternatives.size(); i++) {
+            var j = i;
+            while (j < alternatives.size() && alternatives.get(j).astNodeLabel == null
+                    && alternatives.get(j).clause instanceof CharSet) {
+                j++;
+            }
+            if (j - i >= 2) {
+                var run = alternatives.subList(i, j);
+                var charSets = run.stream().map(alternative -> (CharSet) alternative.clause).toArray(CharSet[]::new);
+                var merged = intern(new CharSet(charSets));
+                run.clear();
+                alternatives.add(i, new LabeledClause(merged, null));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Merge runs of adjacent unlabeled case-sensitive {@link CharSeq} and single-char {@link CharSet} alternatives
+     * into a {@link CharSeqTrie}, which keeps the tokens in priority order. Returns true if anything was merged.
+     */
+    private boolean mergeTokens(List<LabeledClause> alternatives) {
+        var changed = false;
+        for (int i = 0; i < alternatives.size(); i++) {
+            var j = i;
+            var numCharSeqs = 0;
+            while (j < alternatives.size() && isToken(alternatives.get(j))) {
+                if (alternatives.get(j).clause instanceof CharSeq) {
+                    numCharSeqs++;
+                }
+                j++;
+            }
+            if (j - i >= 2 && numCharSeqs > 0) {
+                var run = alternatives.subList(i, j);
+                var strs = run.stream()
+                        .map(alternative -> alternative.clause instanceof CharSeq
+                                ? ((CharSeq) alternative.clause).str
+                                : String.valueOf((char) getSingleChar((CharSet) alternative.clause)))
+                        .toArray(String[]::new);
+                var merged = intern(new CharSeqTrie(strs));
+                run.clear();
+                alternatives.add(i, new LabeledClause(merged, null));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Left-factor runs of adjacent unlabeled {@link Seq} alternatives that start with the same labeled subclause.
+     * Returns true if anything was factored.
+     * 
+     * <p>
+     * {@code (a b) / (a c)} only behaves the same as {@code a (b / c)} if {@code a} consumes at least one char (so
+     * that the new {@link First} clause is not matched at the same start position as the original clause), and if
+     * {@code a} can't reach the original clause (since otherwise rewriting the clause changes how a left-recursive
+     * cycle is grown: a {@link Seq} match only replaces an earlier match if it is longer, whereas a {@link First}
+     * match also replaces an earlier match if it matches an earlier alternative). Also, as for any {@link First}
+     * clause, only the last of {@code b, c} may match zero chars.
+     */
+    private boolean leftFactor(List<LabeledClause> alternatives, First first, Clause origClause) {
+        var changed = false;
+        for (int i = 0; i < alternatives.size(); i++) {
+            var prefix = getFactorablePrefix(alternatives.get(i));
+            if (prefix == null || canMatchZeroChars(prefix.clause)
+                    || origClause != null && (canReach(prefix.clause, first, newIdentitySet())
+                            || canReach(prefix.clause, origClause, newIdentitySet()))) {
+                continue;
+            }
+            var j = i + 1;
+            while (j < alternatives.size()) {
+                var nextPrefix = getFactorablePrefix(alternatives.get(j));
+                if (nextPrefix == null || nextPrefix.clause != prefix.clause
+                        || !String.valueOf(nextPrefix.astNodeLabel).equals(String.valueOf(prefix.astNodeLabel))) {
+                    break;
+                }
+                j++;
+            }
+            // Find the suffix of each alternative after the prefix
+            var suffixes = new ArrayList<LabeledClause>();
+            for (int k = i; k < j; k++) {
+                var labeledSubClauses = alternatives.get(k).clause.labeledSubClauses;
+                if (labeledSubClauses[1].clause instanceof Nothing) {
+                    // Nothing can't be the first subclause of a clause
+                    j = k;
+                    break;
+                } else if (labeledSubClauses.length == 2) {
+                    suffixes.add(labeledSubClauses[1]);
+                } else {
+                    suffixes.add(new LabeledClause(intern(new Seq(toClauses(
+                            Arrays.asList(labeledSubClauses).subList(1, labeledSubClauses.length)))), null));
+                }
+            }
+            while (suffixes.size() >= 2 && !canFactor(suffixes)) {
+                // Shrink the run until the suffixes can be the alternatives of a First clause
+                suffixes.remove(suffixes.size() - 1);
+                j--;
+            }
+            if (suffixes.size() < 2) {
+                continue;
+            }
+
+            // Optimize the First clause of the suffixes (which can't be left-recursive with respect to this
+            // clause, since it is matched at a later start position)
+            var suffixFirst = optimizeFirst(new First(toClauses(suffixes)), /* origClause = */ null);
+            if (suffixFirst instanceof First) {
+                suffixFirst = intern(suffixFirst);
+            }
+            var factored = intern(new Seq(toClauses(List.of(prefix, new LabeledClause(suffixFirst, null)))));
+            var run = alternatives.subList(i, j);
+            run.clear();
+            alternatives.add(i, new LabeledClause(factored, null));
+            changed = true;
+        }
+        return changed;
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    /** Return true if the clause can reach itself, where origClause is the clause it was derived from. */
+    private boolean isInCycle(Clause clause, Clause origClause) {
+        for (var labeledSubClause : clause.labeledSubClauses) {
+            if (canReach(labeledSubClause.clause, clause, newIdentitySet())
+                    || origClause != clause && canReach(labeledSubClause.clause, origClause, newIdentitySet())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return true if the subclause can be inlined into a parent clause of the same type. */
+    private boolean canInline(Clause clause, LabeledClause labeledSubClause) {
+        var subClause = labeledSubClause.clause;
+        return labeledSubClause.astNodeLabel == null && subClause.getClass() == clause.getClass()
+                // Rule names must be kept
+                && subClause.getRules().isEmpty() && numUses.getOrDefault(subClause, 0) == 1;
+    }
+
+    /**
+     * Inline single-use subclauses into a clause whose subclauses have already been processed, and collapse
+     * redundant clauses.
+     * 
+     * <p>
+     * For {@link First}, {@code a / (b / c)} only behaves the same as {@code a / b / c} if the clause is not part
+     * of a cycle, since a {@link First} match only replaces an earlier match of the clause if it is longer or if it
+     * matches an earlier alternative, and the index of the alternative changes. {@link Seq} matches only replace
+     * earlier matches if they are longer, so inlining a {@link Seq} doesn't change how a cycle is grown.
+     */
+    private Clause inlineSubClauses(Clause clause, Clause origClause) {
+        var labeledSubClauses = clause.labeledSubClauses;
+        if (clause instanceof Seq || clause instanceof First) {
+            var inline = false;
+            var hasRepeatedAlternative = false;
+            for (int i = 0; i < labeledSubClauses.length; i++) {
+                inline |= canInline(clause, labeledSubClauses[i]);
+                for (int j = 0; j < i && clause instanceof First; j++) {
+                    hasRepeatedAlternative |= labeledSubClauses[j].clause == labeledSubClauses[i].clause;
+                }
+            }
+            if (inline && clause instanceof First && isInCycle(clause, origClause)) {
+                inline = false;
+            }
+            if (!inline && !hasRepeatedAlternative) {
+                return clause;
+            }
+            var newLabeledSubClauses = new ArrayList<LabeledClause>();
+            for (var labeledSubClause : labeledSubClauses) {
+                if (clause instanceof First && newLabeledSubClauses.stream()
+                        .anyMatch(prevLabeledSubClause -> prevLabeledSubClause.clause == labeledSubClause.clause)) {
+                    // An alternative that is the same as an earlier alternative can never match
+                } else if (inline && canInline(clause, labeledSubClause)) {
+                    newLabeledSubClauses.addAll(Arrays.asList(labeledSubClause.clause.labeledSubClauses));
+                } else {
+                    newLabeledSubClauses.add(labeledSubClause);
+                }
+            }
+            if (newLabeledSubClauses.size() == 1) {
+                // Only possible for First, when all remaining alternatives were repeats of the first alternative
+                return newLabeledSubClauses.get(0).astNodeLabel == null ? newLabeledSubClauses.get(0).clause
+                        : clause;
+            }
+            var subClauses = toClauses(newLabeledSubClauses);
+            return intern(clause instanceof Seq ? new Seq(subClauses) : new First(subClauses));
+        }
+        if (clause.getRules().isEmpty() && labeledSubClauses.length == 1 && labeledSubClauses[0].astNodeLabel == null) {
+            var subClause = labeledSubClauses[0].clause;
+            if (clause instanceof OneOrMore && subClause instanceof OneOrMore || clause instanceof FollowedBy
+                    && (subClause instanceof FollowedBy || subClause instanceof NotFollowedBy)) {
+                return subClause;
+            }
+        }
+        return clause;
+    }
+
+    /** Create an identity-based set. */
+    private static Set<Clause> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /** Return the first subclause of an unlabeled {@link Seq} alternative, or null if not a {@link Seq}. */
+    private static LabeledClause getFactorablePrefix(LabeledClause alternative) {
+        return alternative.astNodeLabel == null && alternative.clause instanceof Seq
+                ? alternative.clause.labeledSubClauses[0]
+                : null;
+    }
+
+    /** Return true if the suffixes can be the alternatives of a {@link First} clause. */
+    private boolean canFactor(List<LabeledClause> suffixes) {
+        for (int i = 0; i < suffixes.size(); i++) {
+            var suffix = suffixes.get(i).clause;
+            if (i < suffixes.size() - 1 && canMatchZeroChars(suffix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -149,7 +149,7 @@ public class GrammarUtils {
 
         // Give each clause an index in the topological sort order, bottom-up
         for (int i = 0; i < allClauses.size(); i++) {
-            allClauses.get(i).clauseIdx = i;
+            allClauses.get(i).setClauseIdx(i);
         }
         return allClauses;
     }
@@ -235,7 +235,7 @@ public class GrammarUtils {
                     numSelfRefsSoFar = rewriteSelfReferences(subClause, associativity, numSelfRefsSoFar,
                             numSelfRefs, selfRefRuleName, isHighestPrec, currPrecRuleName, nextHighestPrecRuleName);
                 }
-                subClause.toStringCached = null;
+                subClause.clearToStringCache();
             }
         }
         return numSelfRefsSoFar;
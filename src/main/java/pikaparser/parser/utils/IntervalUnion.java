@@ -57,19 +57,16 @@ public class IntervalUnion {
             newEntryRangeEnd = Math.max(floorEntryEnd, endPos);
         }
 
-        // Try merging new range with the following entry in TreeMap
-        var higherEntry = nonOverlappingRanges.higherEntry(newEntryRangeStart);
-        var higherEntryStart = higherEntry == null ? null : higherEntry.getKey();
-        var higherEntryEnd = higherEntry == null ? null : higherEntry.getValue();
-        if (higherEntryStart != null && higherEntryStart <= newEntryRangeEnd) {
+        // Try merging new range with the following entries in TreeMap
+        for (var higherEntry = nonOverlappingRanges.higherEntry(newEntryRangeStart); higherEntry != null
+                && higherEntry.getKey() <= newEntryRangeEnd; higherEntry = nonOverlappingRanges
+                        .higherEntry(newEntryRangeStart)) {
             // Expanded-range entry overlaps with the following entry -- collapse them into one
-            nonOverlappingRanges.remove(higherEntryStart);
-            var expandedRangeEnd = Math.max(newEntryRangeEnd, higherEntryEnd);
-            nonOverlappingRanges.put(newEntryRangeStart, expandedRangeEnd);
-        } else {
-            // There's no overlap, just add the new entry (may overwrite the earlier entry for the range start)
-            nonOverlappingRanges.put(newEntryRangeStart, newEntryRangeEnd);
+            nonOverlappingRanges.remove(higherEntry.getKey());
+            newEntryRangeEnd = Math.max(newEntryRangeEnd, higherEntry.getValue());
         }
+        // Add the new entry (may overwrite the earlier entry for the range start)
+        nonOverlappingRanges.put(newEntryRangeStart, newEntryRangeEnd);
     }
 
     /** Get the inverse of the intervals in this set within [StartPos, endPos). */
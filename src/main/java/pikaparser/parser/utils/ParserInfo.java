@@ -43,7 +43,6 @@ import pikaparser.clause.nonterminal.Seq;
 import pikaparser.clause.terminal.Terminal;
 import pikaparser.grammar.Grammar;
 import pikaparser.memotable.Match;
-import pikaparser.memotable.MemoKey;
 import pikaparser.memotable.MemoTable;
 
 /** Utility methods for printing information about the result of a parse. */
@@ -69,7 +68,7 @@ public class ParserInfo {
             if (clause instanceof Terminal) {
                 buf[i].append("[terminal] ");
             }
-            if (clause.canMatchZeroChars) {
+            if (clause.canMatchZeroChars()) {
                 buf[i].append("[canMatchZeroChars] ");
             }
             buf[i].append(clause.toStringWithRuleNames());
@@ -134,7 +133,7 @@ public class ParserInfo {
         for (var subClauseMatchEnt : match.getSubClauseMatches()) {
             var subClauseMatch = subClauseMatchEnt.getValue();
             var subClauseIsInDifferentCycle = //
-                    match.memoKey.clause.clauseIdx <= subClauseMatch.memoKey.clause.clauseIdx;
+                    match.memoKey.clause.getClauseIdx() <= subClauseMatch.memoKey.clause.getClauseIdx();
             var subClauseMatchDepth = findCycleDepth(subClauseMatch, cycleDepthToMatches);
             cycleDepth = Math.max(cycleDepth,
                     subClauseIsInDifferentCycle ? subClauseMatchDepth + 1 : subClauseMatchDepth);
@@ -143,7 +142,7 @@ public class ParserInfo {
             k -> new TreeMap<>(Collections.reverseOrder())
         );
 
-        var matchesForClauseIdx = matchesForDepth.computeIfAbsent(match.memoKey.clause.clauseIdx,
+        var matchesForClauseIdx = matchesForDepth.computeIfAbsent(match.memoKey.clause.getClauseIdx(),
             k -> new TreeMap<>()
         );
 
@@ -206,7 +205,7 @@ public class ParserInfo {
             if (clause instanceof Terminal) {
                 rowLabel[i].append("[terminal] ");
             }
-            if (clause.canMatchZeroChars) {
+            if (clause.canMatchZeroChars()) {
                 rowLabel[i].append("[canMatchZeroChars] ");
             }
             rowLabel[i].append(clause.toStringWithRuleNames());
@@ -215,7 +214,7 @@ public class ParserInfo {
         }
         for (var i = 0; i < clauseForRow.size(); i++) {
             var clause = clauseForRow.get(i);
-            var clauseIdx = clause.clauseIdx;
+            var clauseIdx = clause.getClauseIdx();
             // Right-justify the row label
             String label = rowLabel[i].toString();
             rowLabel[i].setLength(0);
@@ -349,14 +348,12 @@ public class ParserInfo {
                     + clause.toStringWithRuleNames() + " :");
             // Get toplevel AST node label(s), if present
             String astNodeLabel = "";
-            if (clause.rules != null) {
-                for (var rule : clause.rules) {
-                    if (rule.labeledClause.astNodeLabel != null) {
-                        if (!astNodeLabel.isEmpty()) {
-                            astNodeLabel += ":";
-                        }
-                        astNodeLabel += rule.labeledClause.astNodeLabel;
+            for (var rule : clause.getRules()) {
+                if (rule.labeledClause.astNodeLabel != null) {
+                    if (!astNodeLabel.isEmpty()) {
+                        astNodeLabel += ":";
                     }
+                    astNodeLabel += rule.labeledClause.astNodeLabel;
                 }
             }
             var prevEndPos = -1;
@@ -401,8 +398,7 @@ public class ParserInfo {
             subClauseMatches.add(subClause0Match);
             var currStartPos = subClause0Match.memoKey.startPos + subClause0Match.len;
             for (var i = 1; i < numSubClauses; i++) {
-                var subClauseIMatch = memoTable
-                        .lookUpBestMatch(new MemoKey(seqClause.labeledSubClauses[i].clause, currStartPos));
+                var subClauseIMatch = memoTable.lookUpBestMatch(seqClause.labeledSubClauses[i].clause, currStartPos);
                 if (subClauseIMatch == null) {
                     break;
                 }
@@ -42,7 +42,7 @@ public class StringUtils {
     }
 
     /** Replace all non-ASCII/non-printable characters with a block. */
-    public static void replaceNonASCII(String str, StringBuilder buf) {
+    public static void replaceNonASCII(CharSequence str, StringBuilder buf) {
         for (int i = 0; i < str.length(); i++) {
             char c = str.charAt(i);
             buf.append(replaceNonASCII(c));
@@ -50,7 +50,7 @@ public class StringUtils {
     }
 
     /** Replace all non-ASCII/non-printable characters with a block. */
-    public static String replaceNonASCII(String str) {
+    public static String replaceNonASCII(CharSequence str) {
         StringBuilder buf = new StringBuilder();
         replaceNonASCII(str, buf);
         return buf.toString();
@@ -234,4 +234,35 @@ public class StringUtils {
         }
         return buf.toString();
     }
+
+    /**
+     * Compare two chars, ignoring case, in the same way as
+     * {@link String#regionMatches(boolean, int, String, int, int)}.
+     */
+    public static boolean charsEqualIgnoreCase(char c1, char c2) {
+        if (c1 == c2) {
+            return true;
+        }
+        var u1 = Character.toUpperCase(c1);
+        var u2 = Character.toUpperCase(c2);
+        return u1 == u2 || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+    }
+
+    /**
+     * Return true if str occurs in the input at startPos, in the same way as
+     * {@link String#regionMatches(boolean, int, String, int, int)}, but for any {@link CharSequence}.
+     */
+    public static boolean regionMatches(CharSequence input, int startPos, String str, boolean ignoreCase) {
+        if (startPos < 0 || startPos > input.length() - str.length()) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            var c1 = input.charAt(startPos + i);
+            var c2 = str.charAt(i);
+            if (c1 != c2 && (!ignoreCase || !charsEqualIgnoreCase(c1, c2))) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
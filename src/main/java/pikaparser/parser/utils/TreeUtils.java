@@ -36,11 +36,11 @@ import pikaparser.memotable.Match;
 /** Tree utilities. */
 public class TreeUtils {
     /** Render the AST rooted at an {@link ASTNode} into a StringBuffer. */
-    public static void renderTreeView(ASTNode astNode, String input, String indentStr, boolean isLastChild,
+    public static void renderTreeView(ASTNode astNode, CharSequence input, String indentStr, boolean isLastChild,
             StringBuilder buf) {
         int inpLen = 80;
-        String inp = input.substring(astNode.startPos,
-                Math.min(input.length(), astNode.startPos + Math.min(astNode.len, inpLen)));
+        String inp = input.subSequence(astNode.startPos,
+                Math.min(input.length(), astNode.startPos + Math.min(astNode.len, inpLen))).toString();
         if (inp.length() == inpLen) {
             inp += "...";
         }
@@ -60,11 +60,11 @@ public class TreeUtils {
     }
 
     /** Render a parse tree rooted at a {@link Match} node into a StringBuffer. */
-    public static void renderTreeView(Match match, String astNodeLabel, String input, String indentStr,
+    public static void renderTreeView(Match match, String astNodeLabel, CharSequence input, String indentStr,
             boolean isLastChild, StringBuilder buf) {
         int inpLen = 80;
-        String inp = input.substring(match.memoKey.startPos,
-                Math.min(input.length(), match.memoKey.startPos + Math.min(match.len, inpLen)));
+        String inp = input.subSequence(match.memoKey.startPos,
+                Math.min(input.length(), match.memoKey.startPos + Math.min(match.len, inpLen))).toString();
         if (inp.length() == inpLen) {
             inp += "...";
         }
@@ -112,7 +112,7 @@ public class TreeUtils {
     }
 
     /** Print the parse tree rooted at a {@link Match} node to stdout. */
-    public void printTreeView(Match match, String input) {
+    public void printTreeView(Match match, CharSequence input) {
         var buf = new StringBuilder();
         renderTreeView(match, null, input, "", true, buf);
         System.out.println(buf.toString());
@@ -0,0 +1,187 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper: 
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//  
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser.parser.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * UTF-8 encoded input held in a {@link ByteBuffer}, e.g. a memory-mapped file, which can be parsed without
+ * decoding it into a {@link String}.
+ * 
+ * <p>
+ * As a {@link CharSequence}, the input has one char per byte (i.e. {@link #charAt(int)} returns the byte at the
+ * given index, in the range 0 to 255), so input positions (e.g. {@link pikaparser.memotable.MemoKey#startPos}) and
+ * match lengths are byte offsets. ASCII characters are single bytes, so are matched directly. Terminals decode the
+ * UTF-8 sequence at a start position only if it starts with a non-ASCII byte. {@link #toString()} and
+ * {@link #subSequence(int, int)} decode the bytes, so the text of AST nodes and syntax errors is decoded
+ * correctly.
+ */
+public class Utf8Input implements CharSequence {
+    /** The bytes, from index 0 to the buffer's limit. */
+    private final ByteBuffer bytes;
+
+    /** The Unicode replacement character, returned for malformed UTF-8 sequences. */
+    public static final int REPLACEMENT_CHAR = 0xfffd;
+
+    /** Wrap the remaining bytes of a {@link ByteBuffer} (without copying them). */
+    public Utf8Input(ByteBuffer bytes) {
+        this.bytes = bytes.slice();
+    }
+
+    /** Wrap a byte array (without copying it). */
+    public Utf8Input(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /** Memory-map a UTF-8 file. The file must be smaller than 2GB. */
+    public static Utf8Input map(Path path) throws IOException {
+        try (var fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var size = fileChannel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File is too large to map: " + path + " (" + size + " bytes)");
+            }
+            return new Utf8Input(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /** Get the UTF-8 encoding of a string, with one char per byte, i.e. as it would appear in a Utf8Input. */
+    public static String toByteString(String str) {
+        return new String(str.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public int length() {
+        return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(index) & 0xff);
+    }
+
+    /** Get the byte at the given index, in the range 0 to 255. */
+    private int byteAt(int index) {
+        return bytes.get(index) & 0xff;
+    }
+
+    /** Return true if the byte at the given index is a UTF-8 continuation byte in the given range. */
+    private boolean isContinuationByte(int index, int min, int max) {
+        if (index >= bytes.limit()) {
+            return false;
+        }
+        var b = byteAt(index);
+        return b >= min && b <= max;
+    }
+
+    /**
+     * Get the number of bytes in the UTF-8 sequence that starts at the given index. Returns 1 if the byte at the
+     * index is ASCII, or is not the start of a well-formed UTF-8 sequence.
+     */
+    public int codePointLen(int index) {
+        var b = byteAt(index);
+        if (b < 0xc2) {
+            // ASCII, continuation byte, or overlong encoding
+            return 1;
+        } else if (b < 0xe0) {
+            return isContinuationByte(index + 1, 0x80, 0xbf) ? 2 : 1;
+        } else if (b < 0xf0) {
+            // Reject overlong encodings (E0 followed by < A0) and surrogates (ED followed by > 9F)
+            return isContinuationByte(index + 1, b == 0xe0 ? 0xa0 : 0x80, b == 0xed ? 0x9f : 0xbf)
+                    && isContinuationByte(index + 2, 0x80, 0xbf) ? 3 : 1;
+        } else if (b < 0xf5) {
+            // Reject overlong encodings (F0 followed by < 90) and code points above U+10FFFF
+            return isContinuationByte(index + 1, b == 0xf0 ? 0x90 : 0x80, b == 0xf4 ? 0x8f : 0xbf)
+                    && isContinuationByte(index + 2, 0x80, 0xbf) && isContinuationByte(index + 3, 0x80, 0xbf) ? 4
+                            : 1;
+        }
+        return 1;
+    }
+
+    /**
+     * Return true if the byte at the given index is a continuation byte of a well-formed UTF-8 sequence that starts
+     * before the index, i.e. if the index is not the start of a character.
+     */
+    public boolean isInsideCodePoint(int index) {
+        if (!isContinuationByte(index, 0x80, 0xbf)) {
+            return false;
+        }
+        for (int i = index - 1; i >= 0 && i >= index - 3; i--) {
+            var b = byteAt(i);
+            if (b >= 0xc0) {
+                return codePointLen(i) > index - i;
+            } else if (b < 0x80) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decode the code point of the UTF-8 sequence that starts at the given index, or return
+     * {@link #REPLACEMENT_CHAR} if the bytes at the index are not a well-formed UTF-8 sequence.
+     */
+    public int codePointAt(int index) {
+        var b = byteAt(index);
+        if (b < 0x80) {
+            return b;
+        }
+        switch (codePointLen(index)) {
+        case 2:
+            return (b & 0x1f) << 6 | byteAt(index + 1) & 0x3f;
+        case 3:
+            return (b & 0x0f) << 12 | (byteAt(index + 1) & 0x3f) << 6 | byteAt(index + 2) & 0x3f;
+        case 4:
+            return (b & 0x07) << 18 | (byteAt(index + 1) & 0x3f) << 12 | (byteAt(index + 2) & 0x3f) << 6
+                    | byteAt(index + 3) & 0x3f;
+        default:
+            return REPLACEMENT_CHAR;
+        }
+    }
+
+    /** Get the bytes between start (inclusive) and end (exclusive), without copying them. */
+    @Override
+    public Utf8Input subSequence(int start, int end) {
+        if (start < 0 || end > bytes.limit() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + bytes.limit());
+        }
+        return new Utf8Input(bytes.duplicate().limit(end).position(start));
+    }
+
+    /** Decode the bytes. */
+    @Override
+    public String toString() {
+        return StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+    }
+}
@@ -32,8 +32,12 @@ package pikaparser;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.BitSet;
+import java.util.Random;
+
 import org.junit.Test;
 
+import pikaparser.clause.terminal.CharSet;
 import pikaparser.grammar.MetaGrammar;
 
 public class TestCharSetInversion {
@@ -46,4 +50,26 @@ public class TestCharSetInversion {
 
         assertThat(memoTable.getSyntaxErrors(new String[] { "P", "C" }).size(), is(0));
     }
+
+    @Test
+    public void charSetMatchesSameCharsAsBitSet() {
+        var random = new Random(1);
+        // Few ranges (binary search) and many ranges (bitmap), both spanning ASCII and non-ASCII chars
+        for (var numRanges : new int[] { 3, 100 }) {
+            var bitSet = new BitSet();
+            for (int i = 0; i < numRanges; i++) {
+                var first = random.nextInt(0x10000);
+                bitSet.set(first, Math.min(0x10000, first + 1 + random.nextInt(numRanges < 10 ? 1000 : 10)));
+            }
+            bitSet.set('a', 'd');
+            var charSet = new CharSet(bitSet);
+            var invertedCharSet = new CharSet(bitSet).invert();
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                assertThat(charSet.canStartWith((char) c), is(bitSet.get(c)));
+                assertThat(invertedCharSet.canStartWith((char) c), is(!bitSet.get(c)));
+            }
+        }
+        assertThat(new CharSet(new CharSet('a', 'b', 'c', 'x'), new CharSet('y', '\u4e00')).toString(),
+                is("[a-cxy\\u4e00]"));
+    }
 }
@@ -0,0 +1,146 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import pikaparser.clause.Clause;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.memotable.MemoTable;
+
+public class TestConcurrentParsing {
+    private static final int NUM_THREADS = 32;
+
+    private static final String JAVA_INPUT = "package a.b;\n" //
+            + "import java.util.List;\n" //
+            + "/** Doc comment */\n" //
+            + "public class C<T> extends D implements E {\n" //
+            + "    private final List<T> items = new java.util.ArrayList<>();\n" //
+            + "    public int sum(int[] xs) {\n" //
+            + "        int total = 0;\n" //
+            + "        for (int x : xs) { total += x * 2 - (x >> 1); } // comment\n" //
+            + "        return total > 0 ? total : -total;\n" //
+            + "    }\n" //
+            + "}\n";
+
+    /** Get all matches in the memo table as a string, in a deterministic order. */
+    private static String matchesToString(MemoTable memoTable) {
+        var buf = new StringBuilder();
+        var allMatches = memoTable.getAllNavigableMatches();
+        var clauses = new ArrayList<>(allMatches.keySet());
+        clauses.sort(Comparator.comparingInt(Clause::getClauseIdx));
+        for (var clause : clauses) {
+            buf.append(clause.toStringWithRuleNames());
+            buf.append(" => ");
+            buf.append(allMatches.get(clause).toString());
+            buf.append('\n');
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Parse the input from many threads at once with the same grammar, and check that every parse gives the same
+     * result as a parse on a single thread.
+     */
+    private static void parseConcurrently(Grammar grammar, String input) throws Exception {
+        var expected = matchesToString(grammar.parse(input));
+        var executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            var startLatch = new CountDownLatch(1);
+            var futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < NUM_THREADS; i++) {
+                futures.add(executor.submit((Callable<String>) () -> {
+                    startLatch.await();
+                    return matchesToString(grammar.parse(input));
+                }));
+            }
+            startLatch.countDown();
+            for (var future : futures) {
+                assertThat(future.get(), is(expected));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentArithmeticParsesAgree() throws Exception {
+        parseConcurrently(MetaGrammar.parse(loadResourceFile("arithmetic.grammar")),
+                loadResourceFile("arithmetic.input"));
+    }
+
+    @Test
+    public void concurrentJavaParsesAgree() throws Exception {
+        parseConcurrently(MetaGrammar.parse(loadResourceFile("Java.1.8.peg")), JAVA_INPUT);
+    }
+
+    @Test
+    public void concurrentGrammarParsesAgree() throws Exception {
+        // MetaGrammar.parse uses a single shared grammar to parse grammar descriptions
+        var grammarSpec = loadResourceFile("arithmetic.grammar");
+        var expected = MetaGrammar.parse(grammarSpec).allClauses.toString();
+        var executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            var futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < NUM_THREADS; i++) {
+                futures.add(executor.submit(() -> MetaGrammar.parse(grammarSpec).allClauses.toString()));
+            }
+            for (var future : futures) {
+                assertThat(future.get(), is(expected));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void clausesCantBeModifiedAfterGrammarIsConstructed() throws Exception {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        grammar.allClauses.get(0).setClauseIdx(1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void seedParentClausesCantBeModified() throws Exception {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        grammar.allClauses.get(0).getSeedParentClauses().clear();
+    }
+}
@@ -0,0 +1,149 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+import static pikaparser.parser.utils.ClauseFactory.c;
+import static pikaparser.parser.utils.ClauseFactory.cRange;
+import static pikaparser.parser.utils.ClauseFactory.first;
+import static pikaparser.parser.utils.ClauseFactory.followedBy;
+import static pikaparser.parser.utils.ClauseFactory.notFollowedBy;
+import static pikaparser.parser.utils.ClauseFactory.oneOrMore;
+import static pikaparser.parser.utils.ClauseFactory.rule;
+import static pikaparser.parser.utils.ClauseFactory.seq;
+import static pikaparser.parser.utils.ClauseFactory.str;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import org.junit.Test;
+
+import pikaparser.clause.terminal.CharSeq;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseOptions;
+import pikaparser.memotable.Match;
+import pikaparser.memotable.MemoStorage;
+import pikaparser.memotable.MemoTable;
+
+public class TestGrammarCompiler {
+
+    private static MemoTable parseCompiled(Grammar grammar, String input, ParseOptions parseOptions) {
+        parseOptions.clauseMatcher = grammar.compile();
+        assertThat(parseOptions.clauseMatcher.isCompiled(), is(true));
+        return grammar.parse(input, parseOptions);
+    }
+
+    private static void appendParseTree(Match match, StringBuilder buf) {
+        buf.append('(').append(match);
+        for (var subClauseMatch : match.getSubClauseMatches()) {
+            buf.append(' ').append(subClauseMatch.getKey()).append(':');
+            appendParseTree(subClauseMatch.getValue(), buf);
+        }
+        buf.append(')');
+    }
+
+    private static String parseTrees(Grammar grammar, String ruleName, MemoTable memoTable) {
+        var buf = new StringBuilder();
+        for (var match : grammar.getNonOverlappingMatches(ruleName, memoTable)) {
+            appendParseTree(match, buf);
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void compiledMatcherAgreesForJava() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        // Include a syntax error
+        var input = loadResourceFile("GrammarUtils.java").replace("return", "return )");
+
+        var interpreted = grammar.parse(input);
+        var compiled = parseCompiled(grammar, input, new ParseOptions());
+        assertThat(compiled.getAllNavigableMatches().toString(), is(interpreted.getAllNavigableMatches().toString()));
+        assertThat(parseTrees(grammar, "Compilation", compiled), is(parseTrees(grammar, "Compilation", interpreted)));
+        assertThat(compiled.getSyntaxErrors("Compilation", "CompilationUnit").toString(),
+                is(interpreted.getSyntaxErrors("Compilation", "CompilationUnit").toString()));
+    }
+
+    @Test
+    public void compiledMatcherAgreesForTerminals() {
+        // Terminals that need escaping in Java source, inverted and large char sets, and lookahead
+        var grammar = new Grammar(List.of(rule("Program", oneOrMore(first( //
+                seq(str("\"\\\n"), new CharSeq("éT", /* ignoreCase = */ true), notFollowedBy(c('x'))),
+                seq(cRange("^a-z"), followedBy(cRange("a-z"))), //
+                seq(c('a'), cRange("bdfhjlnprtvxz"), first(c('q'), str("\\u000a"), cRange("a-c")))))))); //
+        var input = "\"\\\nÉtQab\\u000azcQ";
+        for (var recognizeOnly : new boolean[] { false, true }) {
+            for (var strategy : MemoStorage.Strategy.values()) {
+                var parseOptions = new ParseOptions();
+                parseOptions.recognizeOnly = recognizeOnly;
+                parseOptions.memoStorageStrategy = strategy;
+                var interpreted = grammar.parse(input, parseOptions);
+                var compiled = parseCompiled(grammar, input, parseOptions);
+                assertThat(compiled.getAllNavigableMatches().toString(),
+                        is(interpreted.getAllNavigableMatches().toString()));
+                if (!recognizeOnly) {
+                    assertThat(parseTrees(grammar, "Program", compiled),
+                            is(parseTrees(grammar, "Program", interpreted)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void compileGrammarOption() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var input = loadResourceFile("arithmetic.input");
+        assertThat(new ParseOptions().compileGrammar, is(false));
+
+        var interpreted = grammar.parse(input);
+        var parseOptions = new ParseOptions();
+        parseOptions.compileGrammar = true;
+        // The second parse reuses the matcher compiled by the first
+        for (int i = 0; i < 2; i++) {
+            var compiled = grammar.parse(input, parseOptions);
+            assertThat(compiled.getAllNavigableMatches().toString(),
+                    is(interpreted.getAllNavigableMatches().toString()));
+            assertThat(parseTrees(grammar, "Program", compiled), is(parseTrees(grammar, "Program", interpreted)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compiledMatcherRejectsOtherGrammar() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var otherGrammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var parseOptions = new ParseOptions();
+        parseOptions.clauseMatcher = otherGrammar.compile();
+        grammar.parse(loadResourceFile("arithmetic.input"), parseOptions);
+    }
+}
@@ -0,0 +1,250 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import pikaparser.ast.ASTNode;
+import pikaparser.clause.Clause;
+import pikaparser.clause.nonterminal.First;
+import pikaparser.clause.nonterminal.Seq;
+import pikaparser.clause.terminal.CharSeqTrie;
+import pikaparser.clause.terminal.CharSet;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+
+public class TestGrammarOptimizer {
+
+    private static String labels(ASTNode astNode) {
+        return astNode.label + astNode.children.stream().map(TestGrammarOptimizer::labels)
+                .collect(Collectors.joining(" ", "(", ")"));
+    }
+
+    private static String parseToAST(Grammar grammar, String ruleName, String input) {
+        var memoTable = grammar.parse(input);
+        var matches = grammar.getNonOverlappingMatches(ruleName, memoTable);
+        assertThat(matches.size(), is(1));
+        assertThat(matches.get(0).len, is(input.length()));
+        return labels(new ASTNode(ruleName, matches.get(0), input));
+    }
+
+    /** Get the start position and length of all matches of a rule. */
+    private static String matchPositions(Grammar grammar, String ruleName, String input) {
+        return grammar.getNavigableMatches(ruleName, grammar.parse(input)).values().stream()
+                .map(match -> match.memoKey.startPos + "+" + match.len).collect(Collectors.joining(" "));
+    }
+
+    @Test
+    public void tokensAreMergedInPriorityOrder() {
+        var grammar = MetaGrammar.parse("Program <- (\"ab\" / \"abc\" / 'x') \"cd\";", /* optimize = */ true);
+        var trie = (CharSeqTrie) grammar.ruleNameWithPrecedenceToRule.get("Program").labeledClause.clause
+                .labeledSubClauses[0].clause;
+        assertThat(trie.strs, is(List.of("ab", "abc", "x")));
+
+        // The first token that matches wins, even though a later token matches a longer prefix of the input
+        assertThat(parseToAST(grammar, "Program", "abcd"), is("Program()"));
+        assertThat(parseToAST(grammar, "Program", "xcd"), is("Program()"));
+        assertThat(grammar.getNonOverlappingMatches("Program", grammar.parse("abccd")).isEmpty(), is(true));
+    }
+
+    @Test
+    public void charSetsAreMerged() {
+        var grammar = MetaGrammar.parse("Program <- ([a-c] / [x-z] / 'q')+;", /* optimize = */ true);
+        var clause = grammar.ruleNameWithPrecedenceToRule.get("Program").labeledClause.clause
+                .labeledSubClauses[0].clause;
+        assertThat(clause instanceof CharSet, is(true));
+        assertThat(clause.toString(), is("[a-cqx-z]"));
+    }
+
+    @Test
+    public void firstIsNotOptimizedByDefault() {
+        var grammar = MetaGrammar.parse("Program <- ([a-c] / [x-z] / 'q')+;");
+        var clause = grammar.ruleNameWithPrecedenceToRule.get("Program").labeledClause.clause
+                .labeledSubClauses[0].clause;
+        assertThat(clause instanceof First, is(true));
+        assertThat(clause.toString(), is("[a-c] / [x-z] / 'q'"));
+    }
+
+    @Test
+    public void labeledAlternativesAreNotMerged() {
+        var grammar = MetaGrammar.parse("Program <- (a:\"ab\" / b:\"cd\")+;", /* optimize = */ true);
+        assertThat(parseToAST(grammar, "Program", "abcdab"), is("Program(a() b() a())"));
+    }
+
+    @Test
+    public void seqAlternativesAreLeftFactored() {
+        var grammar = MetaGrammar.parse("Program <- Stmt+;" //
+                + "Stmt <- (x:Id '=' v:Id ';') / (x:Id '(' v:Id ')' ';') / (x:Id ';');" //
+                + "Id <- [a-z]+;", /* optimize = */ true);
+        assertThat(grammar.ruleNameWithPrecedenceToRule.get("Stmt").labeledClause.clause instanceof Seq,
+                is(true));
+        assertThat(parseToAST(grammar, "Program", "a=b;c(d);e;"), is("Program(x() v() x() v() x())"));
+    }
+
+    @Test
+    public void leftRecursiveAlternativesAreNotLeftFactored() {
+        var grammar = MetaGrammar.parse("E <- (E '+' N) / (E '-' N) / N;" //
+                + "N <- [0-9];", /* optimize = */ true);
+        var clause = grammar.ruleNameWithPrecedenceToRule.get("E").labeledClause.clause;
+        assertThat(clause.toString(), is("(E '+' N) / (E '-' N) / N"));
+        var memoTable = grammar.parse("1+2+3");
+        assertThat(grammar.getNonOverlappingMatches("E", memoTable).get(0).len, is(5));
+    }
+
+    @Test
+    public void singleUseClausesAreInlined() {
+        var grammar = MetaGrammar.parse("Program <- (a:'a' (b:'b' (c:'c' / 'x'))) (('y' 'z') / ('y' 'z'))* Shared;"
+                + "Shared <- 'q' ('y' 'z');", /* optimize = */ true);
+        var clause = grammar.ruleNameWithPrecedenceToRule.get("Program").labeledClause.clause;
+        // (a:'a' (b:'b' ...)) was inlined, ('y' 'z') is used twice so was not inlined, and the repeated
+        // alternative ('y' 'z') was removed
+        assertThat(clause.toString(), is("a:'a' b:'b' (c:'c' / 'x') (('y' 'z')+ / ()) Shared"));
+        assertThat(clause.toStringWithRuleNames(), is("Program <- " + clause));
+        assertThat(parseToAST(grammar, "Program", "abcyzyzqyz"), is("Program(a() b() c())"));
+    }
+
+    @Test
+    public void nestedOneOrMoreIsCollapsed() {
+        var grammar = MetaGrammar.parse("Program <- (('a' / b:'b')+)+;", /* optimize = */ true);
+        assertThat(grammar.ruleNameWithPrecedenceToRule.get("Program").labeledClause.clause.toString(),
+                is("('a' / b:'b')+"));
+        // The inner clause has a rule name, so is not collapsed
+        var uncollapsedGrammar = MetaGrammar.parse("Program <- Inner+; Inner <- ('a' / b:'b')+;");
+        assertThat(uncollapsedGrammar.ruleNameWithPrecedenceToRule.get("Program").labeledClause.clause.toString(),
+                is("Inner+"));
+        assertThat(parseToAST(grammar, "Program", "abab"), is("Program(b() b())"));
+        assertThat(parseToAST(grammar, "Program", "abab"), is(parseToAST(uncollapsedGrammar, "Program", "abab")));
+        assertThat(matchPositions(grammar, "Program", "abcba"),
+                is(matchPositions(uncollapsedGrammar, "Program", "abcba")));
+    }
+
+    @Test
+    public void nestedFollowedByIsCollapsed() {
+        // &(&'a') is rejected by the meta-grammar, but &(&'a' / &'a') becomes &(&'a') once the repeated
+        // alternative is removed
+        var grammar = MetaGrammar.parse("Program <- &(&'a' / &'a') [a-z]+;", /* optimize = */ true);
+        assertThat(grammar.ruleNameWithPrecedenceToRule.get("Program").labeledClause.clause.toString(),
+                is("&'a' [a-z]+"));
+        var uncollapsedGrammar = MetaGrammar.parse("Program <- &Inner [a-z]+; Inner <- &'a';");
+        assertThat(matchPositions(grammar, "Program", "abba"), is("0+4 3+1"));
+        assertThat(matchPositions(grammar, "Program", "abba"),
+                is(matchPositions(uncollapsedGrammar, "Program", "abba")));
+    }
+
+    @Test
+    public void followedByNotFollowedByIsCollapsed() {
+        var grammar = MetaGrammar.parse("Program <- &(!'a' / !'a') [a-z]+;", /* optimize = */ true);
+        assertThat(grammar.ruleNameWithPrecedenceToRule.get("Program").labeledClause.clause.toString(),
+                is("!'a' [a-z]+"));
+        // &Inner with Inner <- !'a' is rejected, since NotFollowedBy can match zero characters, so compare with
+        // the collapsed grammar written out
+        var collapsedGrammar = MetaGrammar.parse("Program <- !'a' [a-z]+;");
+        assertThat(matchPositions(grammar, "Program", "abba"), is("1+3 2+2"));
+        assertThat(matchPositions(grammar, "Program", "abba"),
+                is(matchPositions(collapsedGrammar, "Program", "abba")));
+    }
+
+    @Test
+    public void firstInCycleIsNotInlined() {
+        // Inlining the inner First would make E prefer the shorter match of the first alternative, since
+        // the alternatives of the inner First would no longer have the same index in E
+        var grammar = MetaGrammar.parse("E <- (&E 'a' / \"abcd\") / 'q';", /* optimize = */ true);
+        assertThat(grammar.ruleNameWithPrecedenceToRule.get("E").labeledClause.clause.toString(),
+                is("((&E 'a') / \"abcd\") / 'q'"));
+        var uninlinedGrammar = MetaGrammar.parse("E <- Inner / 'q'; Inner <- &E 'a' / \"abcd\";");
+        assertThat(matchPositions(grammar, "E", "abcd"), is("0+4"));
+        assertThat(matchPositions(grammar, "E", "abcd"), is(matchPositions(uninlinedGrammar, "E", "abcd")));
+
+        // Outside a cycle, the inner First is inlined without changing the matches
+        var acyclicGrammar = MetaGrammar.parse("E <- (&F 'a' / \"abcd\") / 'q'; F <- 'a';", /* optimize = */ true);
+        assertThat(acyclicGrammar.ruleNameWithPrecedenceToRule.get("E").labeledClause.clause.toString(),
+                is("(&F 'a') / \"abcd\" / 'q'"));
+        assertThat(matchPositions(acyclicGrammar, "E", "abcdq"), is("0+1 4+1"));
+    }
+
+    @Test
+    public void inlinedPrecedenceRulesKeepTheirMatches() {
+        // The toplevel clause of T[0], the lowest precedence level of T, is replaced when the First clause of the
+        // rule body is inlined into the First clause that fails over to T[1]. E is left-recursive, so the First
+        // clause of its body is in a cycle, and is not inlined.
+        var grammarDescription = "Program <- ((E / T) ';')+;" //
+                + "E[0] <- (E '+' E) / (E '-' E);" //
+                + "E[1] <- n:[0-9]+ / '(' E ')';" //
+                + "T[0] <- (x:'a' 'b') / ('c' 'd');" //
+                + "T[1] <- y:'x';";
+        var grammar = MetaGrammar.parse(grammarDescription, /* optimize = */ true);
+        var uninlinedGrammar = MetaGrammar.parse(grammarDescription);
+        var clause = grammar.ruleNameWithPrecedenceToRule.get("T[0]").labeledClause.clause;
+        assertThat(clause.toString(), is("(x:'a' 'b') / ('c' 'd') / T[1]"));
+        assertThat(clause.toStringWithRuleNames(), is("T[0] <- " + clause));
+        assertThat(uninlinedGrammar.ruleNameWithPrecedenceToRule.get("T[0]").labeledClause.clause.toString(),
+                is("((x:'a' 'b') / ('c' 'd')) / T[1]"));
+
+        // The replaced toplevel clause of T[0] is not left in the grammar
+        var reachable = new HashSet<Clause>();
+        for (var rule : grammar.allRules) {
+            findReachableClauses(rule.labeledClause.clause, reachable);
+        }
+        assertThat(new HashSet<>(grammar.allClauses), is(reachable));
+
+        var input = "1+2;ab;(3-4);x;cd;";
+        for (var ruleName : List.of("Program", "E[0]", "E[1]", "T[0]", "T[1]")) {
+            var rule = grammar.ruleNameWithPrecedenceToRule.get(ruleName);
+            assertThat(grammar.allClauses.contains(rule.labeledClause.clause), is(true));
+            assertThat(ruleName, matchPositions(grammar, ruleName, input),
+                    is(matchPositions(uninlinedGrammar, ruleName, input)));
+            assertThat(ruleName, astLabels(grammar, ruleName, input), is(astLabels(uninlinedGrammar, ruleName, input)));
+        }
+        assertThat(matchPositions(grammar, "T[0]", input), is("4+2 13+1 15+2"));
+    }
+
+    private static void findReachableClauses(Clause clause, Set<Clause> reachable) {
+        if (reachable.add(clause)) {
+            for (var labeledSubClause : clause.labeledSubClauses) {
+                findReachableClauses(labeledSubClause.clause, reachable);
+            }
+        }
+    }
+
+    /** Get the AST node labels of the nonoverlapping matches of a rule. */
+    private static String astLabels(Grammar grammar, String ruleName, String input) {
+        var memoTable = grammar.parse(input);
+        return grammar.getNonOverlappingMatches(ruleName, memoTable).stream()
+                .map(match -> labels(new ASTNode(ruleName, match, input))).collect(Collectors.joining(" "));
+    }
+}
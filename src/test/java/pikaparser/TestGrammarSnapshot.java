@@ -0,0 +1,137 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import pikaparser.clause.Clause;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.memotable.MemoTable;
+
+public class TestGrammarSnapshot {
+
+    private static Grammar roundTrip(Grammar grammar) throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+        grammar.writeSnapshot(outputStream);
+        return Grammar.readSnapshot(new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+
+    private static void assertSameClauses(Grammar expected, Grammar actual) {
+        assertThat(actual.allClauses.size(), is(expected.allClauses.size()));
+        for (int i = 0; i < expected.allClauses.size(); i++) {
+            var expectedClause = expected.allClauses.get(i);
+            var actualClause = actual.allClauses.get(i);
+            assertThat(actualClause.getClass().getName(), is(expectedClause.getClass().getName()));
+            assertThat(actualClause.getClauseIdx(), is(i));
+            assertThat(actualClause.toStringWithRuleNames(), is(expectedClause.toStringWithRuleNames()));
+            assertThat(actualClause.canMatchZeroChars(), is(expectedClause.canMatchZeroChars()));
+            assertThat(clauseIdxs(actualClause), is(clauseIdxs(expectedClause)));
+        }
+        assertThat(actual.ruleNameWithPrecedenceToRule.keySet(), is(expected.ruleNameWithPrecedenceToRule.keySet()));
+    }
+
+    private static String clauseIdxs(Clause clause) {
+        return "sub: " + Arrays.stream(clause.labeledSubClauses)
+                .map(labeledSubClause -> labeledSubClause.astNodeLabel + ":"
+                        + labeledSubClause.clause.getClauseIdx())
+                .collect(Collectors.joining(",")) + " seed parents: "
+                + clause.getSeedParentClauses().stream().map(c -> Integer.toString(c.getClauseIdx()))
+                        .collect(Collectors.joining(","));
+    }
+
+    private static void assertSameMatches(MemoTable expected, MemoTable actual) {
+        var expectedMatches = expected.getAllNavigableMatches().entrySet().stream()
+                .collect(Collectors.toMap(e -> e.getKey().toStringWithRuleNames(), e -> e.getValue().toString()));
+        var actualMatches = actual.getAllNavigableMatches().entrySet().stream()
+                .collect(Collectors.toMap(e -> e.getKey().toStringWithRuleNames(), e -> e.getValue().toString()));
+        assertThat(actualMatches, is(expectedMatches));
+    }
+
+    @Test
+    public void arithmeticSnapshot() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var snapshotGrammar = roundTrip(grammar);
+        assertSameClauses(grammar, snapshotGrammar);
+
+        var input = loadResourceFile("arithmetic.input");
+        assertSameMatches(grammar.parse(input), snapshotGrammar.parse(input));
+    }
+
+    @Test
+    public void javaSnapshot() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        var snapshotGrammar = roundTrip(grammar);
+        assertSameClauses(grammar, snapshotGrammar);
+
+        // Snapshots of snapshots are identical
+        assertSameClauses(grammar, roundTrip(snapshotGrammar));
+
+        var input = loadResourceFile("GrammarUtils.java");
+        assertThat(snapshotGrammar.parse(input).getSyntaxErrors("Compilation", "CompilationUnit").size(), is(0));
+    }
+
+    @Test
+    public void optimizedGrammarSnapshot() throws IOException {
+        // The optimized grammar contains a CharSeqTrie and a merged CharSet
+        var grammar = MetaGrammar.parse("Program <- ((\"ab\" / \"abc\" / 'x') \"cd\" / [a-c] / [x-z])+;",
+                /* optimize = */ true);
+        var snapshotGrammar = roundTrip(grammar);
+        assertSameClauses(grammar, snapshotGrammar);
+
+        var input = "abcdabccdxcdbz";
+        assertSameMatches(grammar.parse(input), snapshotGrammar.parse(input));
+    }
+
+    @Test
+    public void unpairedSurrogateSnapshot() throws IOException {
+        // Unpaired surrogates can't be encoded as UTF-8, so they would be replaced with U+FFFD
+        var grammar = MetaGrammar.parse("S <- \"a\uD800\" [\uDC00-\uDC01];");
+        var snapshotGrammar = roundTrip(grammar);
+        assertSameClauses(grammar, snapshotGrammar);
+
+        var input = "a\uD800\uDC01";
+        assertSameMatches(grammar.parse(input), snapshotGrammar.parse(input));
+        assertThat(snapshotGrammar.getNonOverlappingMatches("S", snapshotGrammar.parse(input)).size(), is(1));
+        assertThat(snapshotGrammar.getNonOverlappingMatches("S", snapshotGrammar.parse("a\uFFFD\uDC01")).size(),
+                is(0));
+    }
+}
@@ -0,0 +1,165 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import pikaparser.ast.ASTNode;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseOptions;
+import pikaparser.memotable.MemoTable;
+
+public class TestIncrementalParse {
+
+    private static MemoTable parse(Grammar grammar, String input, boolean incrementalReparsing) {
+        var parseOptions = new ParseOptions();
+        parseOptions.incrementalReparsing = incrementalReparsing;
+        return grammar.parse(input, parseOptions);
+    }
+
+    private static void assertSameMatches(MemoTable expected, MemoTable actual) {
+        var expectedMatches = expected.getAllNavigableMatches();
+        var actualMatches = actual.getAllNavigableMatches();
+        assertThat(actualMatches.keySet(), is(expectedMatches.keySet()));
+        for (var clause : expectedMatches.keySet()) {
+            assertThat(actualMatches.get(clause).toString(), is(expectedMatches.get(clause).toString()));
+            // Clause-scoped queries use an index that has to be rebuilt after each edit
+            assertThat(actual.getNavigableMatches(clause).toString(), is(expectedMatches.get(clause).toString()));
+        }
+    }
+
+    /** Apply an edit and reparse, and check the result against parsing the edited input from scratch. */
+    private static void editAndCheck(Grammar grammar, MemoTable memoTable, int start, int oldLen, String newText) {
+        var input = memoTable.input.toString();
+        var expectedInput = input.substring(0, start) + newText + input.substring(start + oldLen);
+        memoTable.applyEdit(start, oldLen, newText);
+        grammar.reparse(memoTable);
+        assertThat(memoTable.input, is(expectedInput));
+        assertSameMatches(grammar.parse(expectedInput), memoTable);
+    }
+
+    private static void reparseArithmetic(boolean incrementalReparsing) throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var memoTable = parse(grammar, loadResourceFile("arithmetic.input"), incrementalReparsing);
+
+        // Insertion, deletion and replacement, at the start, middle and end of the input
+        editAndCheck(grammar, memoTable, 0, 0, "x=1;");
+        editAndCheck(grammar, memoTable, 6, 1, "");
+        editAndCheck(grammar, memoTable, 10, 3, "(y+z)");
+        editAndCheck(grammar, memoTable, memoTable.input.length(), 0, "q=");
+        editAndCheck(grammar, memoTable, memoTable.input.length(), 0, "3;");
+        editAndCheck(grammar, memoTable, 0, 4, "");
+        editAndCheck(grammar, memoTable, 0, memoTable.input.length(), "a=b;");
+
+        // Two edits before reparsing
+        memoTable.applyEdit(2, 1, "(c*d)");
+        memoTable.applyEdit(0, 1, "e");
+        editAndCheck(grammar, memoTable, 0, 0, "");
+    }
+
+    @Test
+    public void reparseArithmetic() throws IOException, URISyntaxException {
+        reparseArithmetic(/* incrementalReparsing = */ true);
+    }
+
+    @Test
+    public void reparseArithmeticWithoutTracking() throws IOException, URISyntaxException {
+        reparseArithmetic(/* incrementalReparsing = */ false);
+    }
+
+    @Test
+    public void reparseJava() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        var input = loadResourceFile("GrammarUtils.java");
+        var memoTable = parse(grammar, input, /* incrementalReparsing = */ true);
+
+        // Rename an identifier, then insert a comment line
+        var pos = input.indexOf("clauseIdx");
+        editAndCheck(grammar, memoTable, pos, 1, "C");
+        editAndCheck(grammar, memoTable, input.indexOf("\n", pos) + 1, 0, "// Comment\n");
+        assertThat(memoTable.getSyntaxErrors("Compilation", "CompilationUnit").size(), is(0));
+    }
+
+    @Test
+    public void applyEditTimeDoesNotDependOnMemoTableSize() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        var input = loadResourceFile("GrammarUtils.java");
+        var parseStartTime = System.nanoTime();
+        var memoTable = parse(grammar, input, /* incrementalReparsing = */ true);
+        var parseTime = System.nanoTime() - parseStartTime;
+
+        // Take the fastest of several edits, so that a GC pause during one edit doesn't fail the test. An edit
+        // used to shift every memo entry, taking about a tenth of the time of a full parse.
+        var pos = input.indexOf("clauseIdx");
+        var minEditTime = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            var editStartTime = System.nanoTime();
+            memoTable.applyEdit(pos, 1, i % 2 == 0 ? "C" : "c");
+            minEditTime = Math.min(minEditTime, System.nanoTime() - editStartTime);
+            grammar.reparse(memoTable);
+        }
+        assertThat("Edit took " + minEditTime / 1e6 + " ms, parse took " + parseTime / 1e6 + " ms",
+                minEditTime < parseTime / 100, is(true));
+    }
+
+    /** Get the label, start position (plus offset) and text of an AST node and its descendants. */
+    private static String astNodePositions(ASTNode astNode, int offset) {
+        return astNode.label + "@" + (astNode.startPos + offset) + ":" + astNode.getText() + astNode.children
+                .stream().map(child -> astNodePositions(child, offset)).collect(Collectors.joining(" ", "(", ")"));
+    }
+
+    @Test
+    public void heldMatchesAreNotModified() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var memoTable = parse(grammar, "a=1;b=(2+3);", /* incrementalReparsing = */ true);
+        var second = grammar.getNonOverlappingMatches("Statement", memoTable).get(1);
+        var secondHashCode = second.memoKey.hashCode();
+        assertThat(second.memoKey.startPos, is(4));
+
+        memoTable.applyEdit(0, 0, "xy");
+        // The match obtained before the edit keeps its start position and hash code
+        assertThat(second.memoKey.startPos, is(4));
+        assertThat(second.memoKey.hashCode(), is(secondHashCode));
+        // The match obtained after the edit, and its parse tree, have their new start positions
+        var shifted = grammar.getNavigableMatches("Statement", memoTable).get(6);
+        assertThat(shifted.memoKey.startPos, is(6));
+        assertThat(astNodePositions(new ASTNode("Statement", shifted, memoTable.input), 0),
+                is(astNodePositions(new ASTNode("Statement", second, "a=1;b=(2+3);"), 2)));
+    }
+}
@@ -0,0 +1,63 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.parser.utils.IntervalUnion;
+
+public class TestIntervalUnion {
+
+    @Test
+    public void addedRangeMergesAllFollowingOverlappingRanges() {
+        var intervalUnion = new IntervalUnion();
+        intervalUnion.addRange(2, 3);
+        intervalUnion.addRange(4, 4);
+        intervalUnion.addRange(5, 7);
+        intervalUnion.addRange(9, 10);
+        intervalUnion.addRange(1, 6);
+        assertThat(intervalUnion.getNonOverlappingRanges().toString(), is("{1=7, 9=10}"));
+        intervalUnion.addRange(0, 12);
+        assertThat(intervalUnion.getNonOverlappingRanges().toString(), is("{0=12}"));
+        assertThat(intervalUnion.invert(0, 14).getNonOverlappingRanges().toString(), is("{12=14}"));
+    }
+
+    @Test
+    public void zeroLengthMatchesDontSplitSyntaxErrors() {
+        // Zero-length matches of S at 1 and 2 are added before the match of P that spans them
+        var grammar = MetaGrammar.parse("P <- 'a' 'b'* 'c'; S <- &'b';");
+        var memoTable = grammar.parse("abbcd");
+        assertThat(memoTable.getSyntaxErrors("S", "P").toString(), is("{4=5=d}"));
+    }
+}
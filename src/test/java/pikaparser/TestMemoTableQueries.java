@@ -0,0 +1,136 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import pikaparser.clause.Clause;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.memotable.ClauseQueue;
+import pikaparser.memotable.Match;
+import pikaparser.memotable.MemoKey;
+import pikaparser.memotable.MemoTable;
+
+public class TestMemoTableQueries {
+
+    private static String startPositions(List<Match> matches) {
+        var buf = new StringBuilder();
+        for (var match : matches) {
+            buf.append(buf.length() == 0 ? "" : " ").append(match.memoKey.startPos).append('+')
+                    .append(match.len);
+        }
+        return buf.toString();
+    }
+
+    /** Query the matches of a clause in each of the ways that use the index of start positions by clause. */
+    private static String queryMatches(MemoTable memoTable, Clause clause) {
+        return Arrays.toString(memoTable.getMatchStartPositions(clause)) + " "
+                + startPositions(memoTable.getAllMatches(clause)) + " / "
+                + startPositions(memoTable.getNonOverlappingMatches(clause));
+    }
+
+    @Test
+    public void queriesSeeAddedMatches() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var memoTable = grammar.parse("a=1;b=2;!c=3;");
+        var statement = grammar.getRule("Statement").labeledClause.clause;
+        assertThat(queryMatches(memoTable, statement), is("[0, 4, 9] 0+4 4+4 9+4 / 0+4 4+4 9+4"));
+
+        // A new start position invalidates the index
+        memoTable.addMatch(statement, 2, new Match(new MemoKey(statement, 2), 6), new ClauseQueue(grammar.allClauses));
+        assertThat(queryMatches(memoTable, statement), is("[0, 2, 4, 9] 0+4 2+6 4+4 9+4 / 0+4 4+4 9+4"));
+
+        // A better match at an existing start position
+        memoTable.addMatch(statement, 0, new Match(new MemoKey(statement, 0), 9), new ClauseQueue(grammar.allClauses));
+        assertThat(queryMatches(memoTable, statement), is("[0, 2, 4, 9] 0+9 2+6 4+4 9+4 / 0+9 9+4"));
+    }
+
+    @Test
+    public void queriesSeeRetainedMatches() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var memoTable = grammar.parse("a=1;b=2;!c=3;");
+        var statement = grammar.getRule("Statement").labeledClause.clause;
+        var term = grammar.getRule("E[3]").labeledClause.clause;
+        assertThat(queryMatches(memoTable, statement), is("[0, 4, 9] 0+4 4+4 9+4 / 0+4 4+4 9+4"));
+        assertThat(queryMatches(memoTable, term), is("[0, 2, 4, 6, 9, 11] 0+1 2+1 4+1 6+1 9+1 11+1 / "
+                + "0+1 2+1 4+1 6+1 9+1 11+1"));
+
+        memoTable.retainOnly("Program");
+
+        // Only the matches of E[3] on the right hand side of the statements are in the retained parse trees
+        assertThat(queryMatches(memoTable, statement), is("[0, 4, 9] 0+4 4+4 9+4 / 0+4 4+4 9+4"));
+        assertThat(queryMatches(memoTable, term), is("[2, 6, 11] 2+1 6+1 11+1 / 2+1 6+1 11+1"));
+    }
+
+    @Test
+    public void concurrentQueriesAgree() throws IOException, URISyntaxException, InterruptedException,
+            ExecutionException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        var memoTable = grammar.parse(loadResourceFile("GrammarUtils.java"));
+        var clauses = grammar.allClauses;
+        var expected = new ArrayList<String>();
+        var tasks = new ArrayList<Callable<List<String>>>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(() -> {
+                var results = new ArrayList<String>();
+                for (var clause : clauses) {
+                    results.add(queryMatches(memoTable, clause));
+                }
+                return results;
+            });
+        }
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            // The index is built by whichever threads query the memo table first
+            var futures = executor.invokeAll(tasks);
+            for (var clause : clauses) {
+                expected.add(queryMatches(memoTable, clause));
+            }
+            for (var future : futures) {
+                assertThat(future.get(), is(expected));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
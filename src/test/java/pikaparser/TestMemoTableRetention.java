@@ -0,0 +1,90 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static pikaparser.TestUtils.loadResourceFile;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import org.junit.Test;
+
+import pikaparser.ast.ASTNode;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseOptions;
+import pikaparser.memotable.MemoStorage;
+import pikaparser.memotable.MemoTable;
+
+public class TestMemoTableRetention {
+
+    private static String astsAndSyntaxErrors(Grammar grammar, MemoTable memoTable, String ruleName) {
+        var buf = new StringBuilder();
+        for (var match : grammar.getNonOverlappingMatches(ruleName, memoTable)) {
+            buf.append(new ASTNode(ruleName, match, memoTable.input));
+        }
+        buf.append(memoTable.getSyntaxErrors(ruleName));
+        return buf.toString();
+    }
+
+    private static int numMatches(MemoTable memoTable) {
+        return memoTable.getAllNavigableMatches().values().stream().mapToInt(m -> m.size()).sum();
+    }
+
+    @Test
+    public void retainedMatchesGiveSameASTsAndSyntaxErrors() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        // Include a syntax error
+        var input = loadResourceFile("GrammarUtils.java").replace("return", "return )");
+        for (var strategy : MemoStorage.Strategy.values()) {
+            var parseOptions = new ParseOptions();
+            parseOptions.memoStorageStrategy = strategy;
+            var memoTable = grammar.parse(input, parseOptions);
+            var expected = astsAndSyntaxErrors(grammar, memoTable, "Compilation");
+            var numMatchesBefore = numMatches(memoTable);
+
+            memoTable.retainOnly("Compilation");
+
+            assertThat(astsAndSyntaxErrors(grammar, memoTable, "Compilation"), is(expected));
+            assertTrue(numMatches(memoTable) * 10 < numMatchesBefore);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void editAfterRetainOnlyIsRejected() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var memoTable = grammar.parse(loadResourceFile("arithmetic.input"));
+        memoTable.retainOnly("Program");
+        memoTable.applyEdit(0, 1, "x");
+    }
+}
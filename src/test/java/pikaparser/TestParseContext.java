@@ -0,0 +1,102 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import org.junit.Test;
+
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseContext;
+import pikaparser.grammar.ParseOptions;
+import pikaparser.memotable.MemoStorage;
+import pikaparser.memotable.MemoTable;
+
+public class TestParseContext {
+
+    private static void assertSameMatches(MemoTable expected, MemoTable actual) {
+        var expectedMatches = expected.getAllNavigableMatches();
+        var actualMatches = actual.getAllNavigableMatches();
+        assertThat(actualMatches.keySet(), is(expectedMatches.keySet()));
+        for (var clause : expectedMatches.keySet()) {
+            assertThat(actualMatches.get(clause).toString(), is(expectedMatches.get(clause).toString()));
+        }
+    }
+
+    private static void assertReusedContextAgrees(Grammar grammar, List<String> inputs,
+            MemoStorage.Strategy strategy) {
+        var parseOptions = new ParseOptions();
+        parseOptions.memoStorageStrategy = strategy;
+        var parseContext = new ParseContext(grammar);
+        for (var input : inputs) {
+            assertSameMatches(grammar.parse(input, parseOptions), grammar.parse(input, parseOptions, parseContext));
+        }
+    }
+
+    @Test
+    public void reusedContextAgreesWithFreshParse() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var input = loadResourceFile("arithmetic.input");
+        // Inputs that shrink and grow, so that storage is both reused and reallocated
+        var inputs = List.of(input, "x=1;", input + input, "", "y=(2+3)*4;", input);
+        for (var strategy : MemoStorage.Strategy.values()) {
+            assertReusedContextAgrees(grammar, inputs, strategy);
+        }
+    }
+
+    @Test
+    public void resetAndReleaseAllowReuse() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var input = loadResourceFile("arithmetic.input");
+        var expected = grammar.parse(input);
+
+        var parseContext = new ParseContext(grammar);
+        var parseOptions = new ParseOptions();
+        grammar.parse(input, parseOptions, parseContext);
+        parseContext.reset();
+        assertSameMatches(expected, grammar.parse(input, parseOptions, parseContext));
+        parseContext.release();
+        assertSameMatches(expected, grammar.parse(input, parseOptions, parseContext));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void contextForDifferentGrammarIsRejected() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var otherGrammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        grammar.parse("x=1;", new ParseOptions(), new ParseContext(otherGrammar));
+    }
+}
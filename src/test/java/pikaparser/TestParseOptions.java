@@ -0,0 +1,185 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+import static pikaparser.parser.utils.ClauseFactory.c;
+import static pikaparser.parser.utils.ClauseFactory.first;
+import static pikaparser.parser.utils.ClauseFactory.rule;
+import static pikaparser.parser.utils.ClauseFactory.zeroOrMore;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import org.junit.Test;
+
+import pikaparser.ast.ASTNode;
+import pikaparser.clause.terminal.CharSeq;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseOptions;
+import pikaparser.memotable.Match;
+import pikaparser.memotable.MemoStorage;
+import pikaparser.memotable.MemoTable;
+
+public class TestParseOptions {
+
+    private static MemoTable parse(Grammar grammar, String input, MemoStorage.Strategy strategy) {
+        var parseOptions = new ParseOptions();
+        parseOptions.memoStorageStrategy = strategy;
+        return grammar.parse(input, parseOptions);
+    }
+
+    private static MemoTable parseWithParallelTerminalMatching(Grammar grammar, String input) {
+        var parseOptions = new ParseOptions();
+        parseOptions.parallelTerminalMatching = true;
+        return grammar.parse(input, parseOptions);
+    }
+
+    private static void assertSameMatches(MemoTable expected, MemoTable actual) {
+        var expectedMatches = expected.getAllNavigableMatches();
+        var actualMatches = actual.getAllNavigableMatches();
+        assertThat(actualMatches.keySet(), is(expectedMatches.keySet()));
+        for (var clause : expectedMatches.keySet()) {
+            assertThat(actualMatches.get(clause).toString(), is(expectedMatches.get(clause).toString()));
+        }
+    }
+
+    private static void appendParseTree(Match match, StringBuilder buf) {
+        buf.append('(').append(match);
+        for (var subClauseMatch : match.getSubClauseMatches()) {
+            buf.append(' ').append(subClauseMatch.getKey()).append(':');
+            appendParseTree(subClauseMatch.getValue(), buf);
+        }
+        buf.append(')');
+    }
+
+    private static String parseTrees(Grammar grammar, String ruleName, MemoTable memoTable) {
+        var buf = new StringBuilder();
+        for (var match : grammar.getNonOverlappingMatches(ruleName, memoTable)) {
+            appendParseTree(match, buf);
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void denseAndSparseStorageAgree() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var input = loadResourceFile("arithmetic.input");
+
+        assertSameMatches(parse(grammar, input, MemoStorage.Strategy.SPARSE),
+                parse(grammar, input, MemoStorage.Strategy.DENSE));
+    }
+
+    @Test
+    public void denseAndSparseStorageAgreeForJava() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        var input = loadResourceFile("GrammarUtils.java");
+
+        var sparse = parse(grammar, input, MemoStorage.Strategy.SPARSE);
+        var dense = parse(grammar, input, MemoStorage.Strategy.DENSE);
+        assertSameMatches(sparse, dense);
+        assertThat(dense.getSyntaxErrors("Compilation", "CompilationUnit").size(), is(0));
+    }
+
+    @Test
+    public void compactAndSparseStorageAgree() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var input = loadResourceFile("arithmetic.input");
+
+        var sparse = parse(grammar, input, MemoStorage.Strategy.SPARSE);
+        var compact = parse(grammar, input, MemoStorage.Strategy.COMPACT);
+        assertSameMatches(sparse, compact);
+        assertThat(parseTrees(grammar, "Program", compact), is(parseTrees(grammar, "Program", sparse)));
+    }
+
+    @Test
+    public void compactAndSparseStorageAgreeForJava() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        var input = loadResourceFile("GrammarUtils.java");
+
+        var sparse = parse(grammar, input, MemoStorage.Strategy.SPARSE);
+        var compact = parse(grammar, input, MemoStorage.Strategy.COMPACT);
+        assertThat(parseTrees(grammar, "Compilation", compact), is(parseTrees(grammar, "Compilation", sparse)));
+        assertThat(compact.getSyntaxErrors("Compilation", "CompilationUnit").size(), is(0));
+    }
+
+    @Test
+    public void recognizeOnlyAgrees() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        // Include a syntax error
+        var input = loadResourceFile("GrammarUtils.java").replace("return", "return )");
+
+        var full = grammar.parse(input);
+        assertThat(full.getSyntaxErrors("Compilation", "CompilationUnit").isEmpty(), is(false));
+        for (var strategy : MemoStorage.Strategy.values()) {
+            var parseOptions = new ParseOptions();
+            parseOptions.memoStorageStrategy = strategy;
+            parseOptions.recognizeOnly = true;
+            var recognized = grammar.parse(input, parseOptions);
+            assertSameMatches(full, recognized);
+            assertThat(recognized.getSyntaxErrors("Compilation", "CompilationUnit").toString(),
+                    is(full.getSyntaxErrors("Compilation", "CompilationUnit").toString()));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void recognizeOnlyRejectsASTConstruction() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var parseOptions = new ParseOptions();
+        parseOptions.recognizeOnly = true;
+        var memoTable = grammar.parse(loadResourceFile("arithmetic.input"), parseOptions);
+        var match = grammar.getNonOverlappingMatches("Program", memoTable).get(0);
+        new ASTNode("Program", match, memoTable.input);
+    }
+
+    @Test
+    public void parallelTerminalMatchingAgrees() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        var input = loadResourceFile("GrammarUtils.java");
+
+        assertSameMatches(grammar.parse(input), parseWithParallelTerminalMatching(grammar, input));
+    }
+
+    @Test
+    public void charSeqAutomatonAgreesWithCharSeqMatching() {
+        // Overlapping CharSeqs (which share prefixes and suffixes), including case-insensitive CharSeqs
+        var grammar = new Grammar(List.of(rule("Program", zeroOrMore(first( //
+                new CharSeq("abab", /* ignoreCase = */ false), new CharSeq("bab", /* ignoreCase = */ true),
+                new CharSeq("ab", /* ignoreCase = */ false), new CharSeq("AB", /* ignoreCase = */ true),
+                new CharSeq("", /* ignoreCase = */ false), c('a', 'b', 'A', 'B'))))));
+        var input = "ababABabbaBAbabAb";
+
+        assertSameMatches(parseWithParallelTerminalMatching(grammar, input), grammar.parse(input));
+    }
+}
@@ -0,0 +1,210 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static pikaparser.TestUtils.loadResourceFile;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseOptions;
+import pikaparser.grammar.ParseService;
+import pikaparser.memotable.Match;
+import pikaparser.memotable.MemoStorage;
+import pikaparser.memotable.MemoTable;
+import pikaparser.parser.utils.Utf8Input;
+
+public class TestParseService {
+    private static List<String> getInputs() {
+        return IntStream.range(0, 200).mapToObj(i -> "x" + "y".repeat(i % 7) + "=" + i + "*(a-" + (i * 31) + ");")
+                .collect(Collectors.toList());
+    }
+
+    private static String getResult(Grammar grammar, MemoTable memoTable) {
+        return memoTable.input + " => " + grammar.getNonOverlappingMatches("Program", memoTable);
+    }
+
+    @Test
+    public void parseAllPreservesOrder() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var inputs = getInputs();
+        var expected = inputs.stream().map(input -> getResult(grammar, grammar.parse(input)))
+                .collect(Collectors.toList());
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var service = new ParseService(grammar, new ParseOptions(), executor, 5);
+            assertThat(service.parseAll(inputs.stream(), memoTable -> getResult(grammar, memoTable))
+                    .collect(Collectors.toList()), is(expected));
+            assertThat(grammar.parseAll(inputs.stream(), executor).map(memoTable -> getResult(grammar, memoTable))
+                    .collect(Collectors.toList()), is(expected));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void parseAllUnorderedReturnsAllResults() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var inputs = getInputs();
+        var expected = inputs.stream().map(input -> getResult(grammar, grammar.parse(input))).sorted()
+                .collect(Collectors.toList());
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var results = new ArrayList<String>();
+            new ParseService(grammar, new ParseOptions(), executor, 5).parseAllUnordered(inputs.stream(),
+                    memoTable -> getResult(grammar, memoTable), results::add);
+            results.sort(null);
+            assertThat(results, is(expected));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void parseAllAppliesBackpressure() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var numInputsRead = new AtomicInteger();
+        var maxInFlight = 3;
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var results = new ParseService(grammar, new ParseOptions(), executor, maxInFlight)
+                    .parseAll(getInputs().stream().peek(input -> numInputsRead.incrementAndGet()),
+                            memoTable -> memoTable.input)
+                    .iterator();
+            for (int i = 0; i < 10; i++) {
+                results.next();
+                // Inputs are read only when there is room for another parse
+                assertTrue(numInputsRead.get() <= i + maxInFlight);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void appendParseTree(Match match, StringBuilder buf) {
+        buf.append('(').append(match);
+        for (var subClauseMatch : match.getSubClauseMatches()) {
+            appendParseTree(subClauseMatch.getValue(), buf);
+        }
+        buf.append(')');
+    }
+
+    private static String parseTrees(List<Match> matches) {
+        var buf = new StringBuilder();
+        for (var match : matches) {
+            appendParseTree(match, buf);
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void compactMatchesRemainValidAfterParse() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var inputs = getInputs();
+        var expected = inputs.stream().map(input -> parseTrees(grammar.getNonOverlappingMatches("Program",
+                grammar.parse(input)))).collect(Collectors.toList());
+        var parseOptions = new ParseOptions();
+        parseOptions.memoStorageStrategy = MemoStorage.Strategy.COMPACT;
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            // The result mapper returns views of compact memo table entries, which are walked after later parses
+            var results = new ParseService(grammar, parseOptions, executor, 3)
+                    .parseAll(inputs.stream(), memoTable -> grammar.getNonOverlappingMatches("Program", memoTable))
+                    .collect(Collectors.toList());
+            assertThat(results.stream().map(TestParseService::parseTrees).collect(Collectors.toList()),
+                    is(expected));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void utf8InputPositionsAreByteOffsets() {
+        var grammar = MetaGrammar.parse("Program <- (Word ' ')+; Word <- [a-z\u00E9\u20AC]+;");
+        // U+00E9 is 2 bytes in UTF-8, and U+20AC is 3 bytes
+        var inputs = List.of("\u00E9\u20ACa b ", "a\u00E9 \u20AC ");
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var results = new ParseService(grammar, new ParseOptions(), executor, 2)
+                    .parseAll(inputs.stream().map(input -> new Utf8Input(input.getBytes(StandardCharsets.UTF_8))),
+                            memoTable -> grammar.getNonOverlappingMatches("Word", memoTable).stream()
+                                    .map(match -> match.memoKey.startPos + "+" + match.len)
+                                    .collect(Collectors.joining(" ")))
+                    .collect(Collectors.toList());
+            assertThat(results, is(List.of("0+6 7+1", "0+3 4+3")));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void discardedServiceDoesNotPinParseContextsInThreads() throws IOException, URISyntaxException {
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var grammarRef = parseAndDiscard(executor);
+            // The ParseContexts of the discarded service (which refer to the grammar) can be garbage collected,
+            // even though the executor's threads are still alive
+            for (int i = 0; i < 50 && grammarRef.get() != null; i++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            assertThat(grammarRef.get() == null, is(true));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static WeakReference<Grammar> parseAndDiscard(ExecutorService executor)
+            throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var service = new ParseService(grammar, new ParseOptions(), executor, 4);
+        assertThat(service.parseAll(getInputs().stream(), memoTable -> memoTable.input.length()).count(),
+                is((long) getInputs().size()));
+        return new WeakReference<>(grammar);
+    }
+}
@@ -0,0 +1,104 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import pikaparser.grammar.ClauseMatcher;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParserGenerator;
+import pikaparser.memotable.MemoTable;
+
+public class TestParserGenerator {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /** Get the matches of each clause, keyed by the clause's toString() value, since the clauses differ. */
+    private static Map<String, String> matchesByClause(MemoTable memoTable) {
+        var matchesByClause = new TreeMap<String, String>();
+        for (var ent : memoTable.getAllNavigableMatches().entrySet()) {
+            matchesByClause.put(ent.getKey().toString(), ent.getValue().toString());
+        }
+        return matchesByClause;
+    }
+
+    @Test
+    public void generatedParserAgrees() throws Exception {
+        var grammarFile = tempFolder.newFile("arithmetic.grammar").toPath();
+        Files.writeString(grammarFile, loadResourceFile("arithmetic.grammar"), StandardCharsets.UTF_8);
+        var sourceDir = tempFolder.newFolder("src").toPath();
+        var classDir = tempFolder.newFolder("classes").toPath();
+
+        // Generate and compile the parser class
+        var sourceFile = ParserGenerator.generate(grammarFile, "test.generated.ArithmeticParser", sourceDir);
+        assertThat(sourceFile, is(sourceDir.resolve("test/generated/ArithmeticParser.java")));
+        var classPath = Paths.get(Grammar.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        assertThat(ToolProvider.getSystemJavaCompiler().run(null, null, null, "-classpath", classPath.toString(),
+                "-d", classDir.toString(), sourceFile.toString()), is(0));
+
+        try (var classLoader = new URLClassLoader(new URL[] { classDir.toUri().toURL() },
+                getClass().getClassLoader())) {
+            var parserClass = classLoader.loadClass("test.generated.ArithmeticParser");
+            var generatedGrammar = (Grammar) parserClass.getField("GRAMMAR").get(null);
+            var matcher = (ClauseMatcher) parserClass.getField("MATCHER").get(null);
+            assertThat(matcher.isCompiled(), is(true));
+
+            var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+            assertThat(generatedGrammar.allClauses.toString(), is(grammar.allClauses.toString()));
+            var input = loadResourceFile("arithmetic.input");
+            var memoTable = (MemoTable) parserClass.getMethod("parse", String.class).invoke(null, input);
+            assertThat(matchesByClause(memoTable), is(matchesByClause(grammar.parse(input))));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidClassNameIsRejected() throws IOException, URISyntaxException {
+        ParserGenerator.generateSource(MetaGrammar.parse(loadResourceFile("arithmetic.grammar")), "test.class");
+    }
+}
@@ -0,0 +1,114 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseOptions;
+
+public class TestStreamingParse {
+
+    @Test
+    public void streamingParseFindsSameStatements() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var buf = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            buf.append(i % 7 == 3 ? "x=(a+b*c);" : "discriminant=b*b-4*a*c;");
+            if (i % 50 == 49) {
+                // Add a syntax error
+                buf.append("!!");
+            }
+        }
+        var input = buf.toString();
+
+        List<String> expected = new ArrayList<>();
+        for (var match : grammar.getNonOverlappingMatches("Statement", grammar.parse(input))) {
+            expected.add(match.memoKey.startPos + "+" + match.len);
+        }
+
+        List<String> actual = new ArrayList<>();
+        grammar.parseStreaming(new StringReader(input), "Statement", /* windowSize = */ 64, new ParseOptions(),
+                (windowStartPos, memoTable, match) -> actual
+                        .add((windowStartPos + match.memoKey.startPos) + "+" + match.len));
+
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void unmatchedInputIsSkipped() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var input = "x=1;" + "!".repeat(100000) + "y=2;";
+
+        List<String> actual = new ArrayList<>();
+        var maxWindowLen = new int[1];
+        grammar.parseStreaming(new StringReader(input), "Statement", /* windowSize = */ 64, new ParseOptions(),
+                (windowStartPos, memoTable, match) -> {
+                    actual.add((windowStartPos + match.memoKey.startPos) + "+" + match.len);
+                    maxWindowLen[0] = Math.max(maxWindowLen[0], memoTable.input.length());
+                });
+
+        assertThat(actual.toString(), is("[0+4, 100004+4]"));
+        assertThat(maxWindowLen[0] <= 64 * Grammar.MAX_STREAMING_WINDOW_GROWTH, is(true));
+    }
+
+    @Test
+    public void windowGrowthIsCapped() throws IOException {
+        var grammar = MetaGrammar.parse("Line <- [^\\n]+ '\\n'?;");
+        var windowSize = 16;
+        var maxWindowSize = windowSize * Grammar.MAX_STREAMING_WINDOW_GROWTH;
+        // A line that fits in a grown window, and a line that is too long for the largest window
+        var input = "a\n" + "b".repeat(100) + "\n" + "c".repeat(maxWindowSize + 10) + "\nd\n";
+
+        List<String> actual = new ArrayList<>();
+        var maxWindowLen = new int[1];
+        grammar.parseStreaming(new StringReader(input), "Line", windowSize, new ParseOptions(),
+                (windowStartPos, memoTable, match) -> {
+                    actual.add((windowStartPos + match.memoKey.startPos) + "+" + match.len);
+                    maxWindowLen[0] = Math.max(maxWindowLen[0], memoTable.input.length());
+                });
+
+        // The long line is cut short at the end of the largest window
+        assertThat(actual.toString(), is("[0+2, 2+101, 103+" + maxWindowSize + ", " + (103 + maxWindowSize)
+                + "+11, " + (103 + maxWindowSize + 11) + "+2]"));
+        assertThat(maxWindowLen[0] <= maxWindowSize, is(true));
+    }
+}
@@ -0,0 +1,210 @@
+//
+// This file is part of the pika parser reference implementation:
+//
+//     https://github.com/lukehutch/pikaparser
+//
+// The pika parsing algorithm is described in the following paper:
+//
+//     Pika parsing: reformulating packrat parsing as a dynamic programming algorithm solves the left recursion
+//     and error recovery problems. Luke A. D. Hutchison, May 2020.
+//     https://arxiv.org/abs/2005.06444
+//
+// This software is provided under the MIT license:
+//
+// Copyright 2020 Luke A. D. Hutchison
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+// and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions
+// of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+// TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+// CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+// DEALINGS IN THE SOFTWARE.
+//
+package pikaparser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static pikaparser.TestUtils.loadResourceFile;
+import static pikaparser.parser.utils.ClauseFactory.c;
+import static pikaparser.parser.utils.ClauseFactory.cRange;
+import static pikaparser.parser.utils.ClauseFactory.first;
+import static pikaparser.parser.utils.ClauseFactory.oneOrMore;
+import static pikaparser.parser.utils.ClauseFactory.rule;
+import static pikaparser.parser.utils.ClauseFactory.ruleRef;
+import static pikaparser.parser.utils.ClauseFactory.str;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import pikaparser.ast.ASTNode;
+import pikaparser.clause.terminal.CharSeq;
+import pikaparser.grammar.Grammar;
+import pikaparser.grammar.MetaGrammar;
+import pikaparser.grammar.ParseOptions;
+import pikaparser.memotable.MemoTable;
+import pikaparser.parser.utils.Utf8Input;
+
+public class TestUtf8Input {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Get the start position and length of the matches of each clause, keyed by the clause's toString(), skipping
+     * matches that don't start at one of the given positions.
+     */
+    private static Map<String, List<String>> matchesByClause(MemoTable memoTable, int[] posToBytePos,
+            BitSet startPositions) {
+        var matchesByClause = new TreeMap<String, List<String>>();
+        for (var ent : memoTable.getAllNavigableMatches().entrySet()) {
+            var matches = new ArrayList<String>();
+            for (var match : ent.getValue().values()) {
+                if (startPositions.get(match.memoKey.startPos)) {
+                    var startPos = posToBytePos[match.memoKey.startPos];
+                    matches.add(startPos + "+" + (posToBytePos[match.memoKey.startPos + match.len] - startPos));
+                }
+            }
+            matchesByClause.put(ent.getKey().toString(), matches);
+        }
+        return matchesByClause;
+    }
+
+    /** Get the byte offset of each char position in the UTF-8 encoding of a string (without surrogates). */
+    private static int[] posToBytePos(String input) {
+        var posToBytePos = new int[input.length() + 1];
+        for (int i = 0; i < input.length(); i++) {
+            var c = input.charAt(i);
+            posToBytePos[i + 1] = posToBytePos[i] + (c < 0x80 ? 1 : c < 0x800 ? 2 : 3);
+        }
+        return posToBytePos;
+    }
+
+    private static int[] identity(int len) {
+        var posToPos = new int[len + 1];
+        for (int i = 0; i <= len; i++) {
+            posToPos[i] = i;
+        }
+        return posToPos;
+    }
+
+    /**
+     * Check that parsing the UTF-8 encoding of the input finds the same matches as parsing the input, at the byte
+     * offsets where chars start. (Zero-length matches, e.g. of NotFollowedBy clauses, can also be found between
+     * the bytes of a char, but no other match can include them.)
+     */
+    private static MemoTable parseAndCompare(Grammar grammar, String input) {
+        var utf8Input = new Utf8Input(input.getBytes(StandardCharsets.UTF_8));
+        var memoTable = grammar.parse(utf8Input);
+        var posToBytePos = posToBytePos(input);
+        var charStartPositions = new BitSet();
+        for (var bytePos : posToBytePos) {
+            charStartPositions.set(bytePos);
+        }
+        var allPositions = new BitSet();
+        allPositions.set(0, input.length() + 1);
+        assertThat(matchesByClause(memoTable, identity(utf8Input.length()), charStartPositions),
+                is(matchesByClause(grammar.parse(input), posToBytePos, allPositions)));
+        return memoTable;
+    }
+
+    private static List<String> syntaxErrorText(MemoTable memoTable) {
+        var syntaxErrorText = new ArrayList<String>();
+        for (var ent : memoTable.getSyntaxErrors("Compilation", "CompilationUnit").values()) {
+            syntaxErrorText.add(ent.getValue());
+        }
+        return syntaxErrorText;
+    }
+
+    @Test
+    public void utf8InputAgreesForJava() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("Java.1.8.peg"));
+        // Add non-ASCII chars in comments and string literals, and a syntax error
+        var input = loadResourceFile("GrammarUtils.java").replace("// ", "// Größe → ")
+                .replace("\"Unknown", "\"Ünknown ÷").replace("return", "return )");
+
+        var memoTable = parseAndCompare(grammar, input);
+        // The positions of syntax errors are byte offsets, so only compare their text
+        assertThat(syntaxErrorText(memoTable), is(syntaxErrorText(grammar.parse(input))));
+    }
+
+    @Test
+    public void utf8InputAgreesForNonASCIITerminals() {
+        var grammar = new Grammar(List.of(rule("Program", oneOrMore(first( //
+                // Becomes a CharSeqTrie
+                str("café"), str("naïve"), str("caf"), //
+                new CharSeq("ÉTÉ", /* ignoreCase = */ true), new CharSeq("Ab", /* ignoreCase = */ true),
+                cRange("à-ÿ"), cRange("^a-zà-ÿ"))))), /* optimize = */ true);
+        parseAndCompare(grammar, "cafécafnaïveétéÉtÉaBàÿ€ABcĀ");
+    }
+
+    /** Get the start position and length of the matches of a rule. */
+    private static String matchPositions(Grammar grammar, String ruleName, MemoTable memoTable) {
+        var buf = new StringBuilder();
+        for (var match : grammar.getNavigableMatches(ruleName, memoTable).values()) {
+            buf.append(buf.length() == 0 ? "" : " ").append(match.memoKey.startPos).append('+').append(match.len);
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void supplementaryAndMalformedChars() {
+        var grammar = new Grammar(List.of(rule("Program", oneOrMore(first(c('x'), ruleRef("NotX")))),
+                rule("NotX", cRange("^x")), rule("Smiley", str("\uD83D\uDE00"))));
+        // A 4-byte code point, a truncated 3-byte sequence, a lone continuation byte, and an encoded surrogate
+        var bytes = new byte[] { 'x', (byte) 0xf0, (byte) 0x9f, (byte) 0x98, (byte) 0x80, (byte) 0xe2,
+                (byte) 0x82, 'x', (byte) 0x80, (byte) 0xed, (byte) 0xa0, (byte) 0x80 };
+        var utf8Input = new Utf8Input(bytes);
+        assertThat(utf8Input.codePointAt(1), is(0x1f600));
+        assertThat(utf8Input.codePointLen(1), is(4));
+        assertThat(utf8Input.codePointAt(5), is(Utf8Input.REPLACEMENT_CHAR));
+        assertThat(utf8Input.codePointLen(5), is(1));
+        assertThat(utf8Input.codePointLen(9), is(1));
+
+        var memoTable = grammar.parse(utf8Input);
+        assertThat(matchPositions(grammar, "Smiley", memoTable), is("1+4"));
+        // Each byte of a malformed sequence is matched separately, but not the continuation bytes of a char
+        assertThat(matchPositions(grammar, "NotX", memoTable), is("1+4 5+1 6+1 8+1 9+1 10+1 11+1"));
+        assertThat(grammar.getNonOverlappingMatches("Program", memoTable).get(0).len, is(bytes.length));
+    }
+
+    @Test
+    public void memoryMappedFile() throws IOException, URISyntaxException {
+        var grammar = MetaGrammar.parse(loadResourceFile("arithmetic.grammar"));
+        var input = "größe=(1+2)*3;x=";
+        var file = tempFolder.newFile("input.txt").toPath();
+        Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+
+        var utf8Input = Utf8Input.map(file);
+        assertThat(utf8Input.toString(), is(input));
+        var memoTable = grammar.parse(utf8Input);
+        var match = grammar.getNonOverlappingMatches("Statement", memoTable).get(0);
+        assertThat(match.memoKey.startPos, is(6));
+        assertThat(new ASTNode("Statement", match, memoTable.input).getText(), is("e=(1+2)*3;"));
+        assertThat(memoTable.getSyntaxErrors("Program").toString(), is("{0=6=größ, 16=18=x=}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void incrementalReparsingRejectsUtf8Input() {
+        var grammar = new Grammar(List.of(rule("Program", oneOrMore(c('x')))));
+        var parseOptions = new ParseOptions();
+        parseOptions.incrementalReparsing = true;
+        grammar.parse(new Utf8Input(new byte[] { 'x' }), parseOptions);
+    }
+}